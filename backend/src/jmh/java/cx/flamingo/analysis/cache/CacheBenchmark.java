@@ -0,0 +1,186 @@
+package cx.flamingo.analysis.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import cx.flamingo.analysis.cache.impl.DiskCacheService;
+import cx.flamingo.analysis.cache.impl.MemoryCacheService;
+import cx.flamingo.analysis.cache.impl.RedisCacheService;
+import cx.flamingo.analysis.cache.model.Leaderboard;
+import cx.flamingo.analysis.config.CacheConfig;
+import cx.flamingo.analysis.config.RedisConfig;
+import cx.flamingo.analysis.model.Contributor;
+import cx.flamingo.analysis.model.SocialLink;
+
+/**
+ * Compares the cache backends on the operations the search path does most: reading a
+ * query's ranking, writing one, and reading a pre-rendered response body. Each backend is
+ * wired by Spring from application.properties, as in the service.
+ *
+ * mvn -Pbenchmark compile exec:exec runs all of them. The redis backend needs a Redis at
+ * spring.redis.host, pass -Dbenchmark.args="-p backend=memory,disk" to leave it out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class CacheBenchmark {
+
+    private static final int KEYS = 1000;
+    private static final int RANKING_DEPTH = 50;
+    private static final int BODY_BYTES = 4096;
+
+    @Param({ "memory", "disk", "redis" })
+    private String backend;
+
+    private AnnotationConfigApplicationContext context;
+    private CacheServiceAbs cache;
+    private Path directory;
+    // Cache path of the benchmark's entries, a directory under the temp one for the disk backend
+    private String cachePath;
+    private Leaderboard ranking;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("cache-benchmark");
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources()
+                .addFirst(new MapPropertySource("benchmark", Map.of(
+                        "github.cache.path", directory.resolve("github").toString(),
+                        "http.cache.path", directory.resolve("http").toString(),
+                        "http.body.cache.path", directory.resolve("http-body").toString(),
+                        "leaderboard.cache.path", directory.resolve("leaderboard").toString(),
+                        "tombstone.cache.path", directory.resolve("tombstone").toString())));
+        context.getEnvironment().getPropertySources()
+                .addLast(new ResourcePropertySource("classpath:application.properties"));
+
+        switch (backend) {
+            case "memory" -> {
+                context.registerBean(Gson.class, () -> new RedisConfig().gson());
+                context.register(MemoryCacheService.class);
+            }
+            case "disk" -> {
+                context.registerBean(Gson.class, () -> new RedisConfig().gson());
+                context.register(DiskCacheService.class);
+            }
+            case "redis" -> context.register(RedisConfig.class, RedisCacheService.class);
+            default -> throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+        cachePath = backend.equals("disk") ? directory.resolve("benchmark").toString() : "benchmark";
+        context.refresh();
+        cache = context.getBean(CacheServiceAbs.class);
+        cache.setCacheMode(CacheConfig.CacheMode.READ_WRITE);
+
+        ranking = ranking(RANKING_DEPTH);
+        byte[] body = new byte[BODY_BYTES];
+        ThreadLocalRandom.current().nextBytes(body);
+        for (int i = 0; i < KEYS; i++) {
+            cache.put(cachePath, key(i), ranking);
+            cache.putBytes(cachePath, bodyKey(i), body);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (int i = 0; i < KEYS; i++) {
+            cache.invalidate(cachePath, key(i));
+            cache.invalidate(cachePath, bodyKey(i));
+        }
+        context.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Object getRanking() {
+        return cache.get(cachePath, key(ThreadLocalRandom.current().nextInt(KEYS)), new TypeToken<Leaderboard>() {
+        }, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public void putRanking() {
+        cache.put(cachePath, key(ThreadLocalRandom.current().nextInt(KEYS)), ranking);
+    }
+
+    @Benchmark
+    public Object getBody() {
+        return cache.getBytes(cachePath, bodyKey(ThreadLocalRandom.current().nextInt(KEYS)));
+    }
+
+    private static String key(int i) {
+        return "ranking-" + i;
+    }
+
+    private static String bodyKey(int i) {
+        return "body-" + i;
+    }
+
+    /**
+     * A ranking shaped like a real one, with social links and stats for every contributor
+     */
+    private static Leaderboard ranking(int depth) {
+        List<Contributor> contributors = new ArrayList<>(depth);
+        for (int i = 0; i < depth; i++) {
+            String login = "contributor-" + i;
+            contributors.add(Contributor.builder()
+                    .login(login)
+                    .name("Contributor " + i)
+                    .avatarUrl("https://avatars.githubusercontent.com/u/" + i)
+                    .url("https://github.com/" + login)
+                    .bio(new String(new char[120]).replace('\0', 'x'))
+                    .type(Contributor.Role.CONTRIBUTOR)
+                    .socialLinks(List.of(
+                            new SocialLink("github", "https://github.com/" + login),
+                            new SocialLink("twitter", "https://twitter.com/" + login)))
+                    .cityId("boston-ma")
+                    .nearestTeamId("new-england-revolution")
+                    .lastActive(Instant.now())
+                    .totalCommits(1000 - i)
+                    .javaRepos(10)
+                    .starsReceived(500)
+                    .forksReceived(50)
+                    .starsGiven(20)
+                    .forksGiven(5)
+                    .score(10000 - i)
+                    .build());
+        }
+        return Leaderboard.builder()
+                .contributors(contributors)
+                .depth(depth)
+                .build();
+    }
+}
@@ -0,0 +1,94 @@
+package cx.flamingo.analysis.cache;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the cache readiness in memory, so requests don't pay a cache round-trip to check it.
+ * The cache is polled in the background, and the readiness is mirrored into the application's
+ * readiness state so that a pod with a cold cache is taken out of rotation.
+ *
+ * Scheduling is disabled in the backend-service, so polling runs on its own thread.
+ */
+@Slf4j
+@Service
+public class CacheReadinessTracker {
+
+    private final CacheServiceAbs cacheService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ApplicationAvailability applicationAvailability;
+
+    @Value("${cache.readiness.poll.ms:2000}")
+    private long pollIntervalMs;
+
+    private volatile boolean ready;
+
+    private ScheduledExecutorService poller;
+
+    public CacheReadinessTracker(CacheServiceAbs cacheService, ApplicationEventPublisher eventPublisher,
+            ApplicationAvailability applicationAvailability) {
+        this.cacheService = cacheService;
+        this.eventPublisher = eventPublisher;
+        this.applicationAvailability = applicationAvailability;
+    }
+
+    @PostConstruct
+    public void init() {
+        ready = checkCacheReady();
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CacheReadinessTracker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void poll() {
+        boolean cacheReady = checkCacheReady();
+        if (cacheReady != ready) {
+            log.info("Cache readiness changed to {}", cacheReady);
+            ready = cacheReady;
+        }
+
+        // Compared against the current state rather than our last change, since the
+        // application itself switches to accepting traffic once it has started
+        ReadinessState readinessState = cacheReady ? ReadinessState.ACCEPTING_TRAFFIC
+                : ReadinessState.REFUSING_TRAFFIC;
+        if (applicationAvailability.getReadinessState() != readinessState) {
+            AvailabilityChangeEvent.publish(eventPublisher, this, readinessState);
+        }
+    }
+
+    private boolean checkCacheReady() {
+        try {
+            return cacheService.isCacheReady();
+        } catch (Exception e) {
+            // Keep the last known state while the cache is unreachable
+            log.error("Error checking cache readiness: {}", e.getMessage());
+            return ready;
+        }
+    }
+}
@@ -1,10 +1,18 @@
 package cx.flamingo.analysis.cache;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Value;
@@ -14,11 +22,26 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 
+import cx.flamingo.analysis.cache.model.CacheEntry;
+import cx.flamingo.analysis.cache.model.CacheStats;
+import cx.flamingo.analysis.cache.model.Expiration;
+import cx.flamingo.analysis.cache.model.Leaderboard;
+import cx.flamingo.analysis.cache.model.Tombstone;
 import cx.flamingo.analysis.config.CacheConfig.CacheMode;
+import cx.flamingo.analysis.exception.DeadlineExceededException;
+import cx.flamingo.analysis.exception.GithubRateLimitException;
+import cx.flamingo.analysis.exception.GithubTimeoutException;
+import cx.flamingo.analysis.exception.GithubTooFastException;
 import cx.flamingo.analysis.model.City;
 import cx.flamingo.analysis.model.Contributor;
+import cx.flamingo.analysis.model.Deadline;
+import cx.flamingo.analysis.model.ExportJob;
+import cx.flamingo.analysis.model.SearchQuery;
+import jakarta.annotation.PreDestroy;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 @Slf4j
 public abstract class CacheServiceAbs {
@@ -33,12 +56,76 @@ public abstract class CacheServiceAbs {
     @Value("${http.cache.refresh.interval}")
     protected long httpRefreshIntervalMs;
 
+    @Value("${leaderboard.max.depth:50}")
+    protected int leaderboardMaxDepth;
+
+    // maxResults values whose response bodies are pre-rendered with every ranking write
+    @Value("${http.body.cache.max.results:15}")
+    protected List<Integer> httpBodyMaxResults;
+
+    private Function<List<Contributor>, byte[]> httpBodyRenderer;
+
     @Value("${cache.expiration.ms:3600000}")
     protected long cacheExpirationMs;
 
     @Value("${cache.should.be.ready:false}")
     protected boolean cacheShouldBeReady;
 
+    // Empty and failed GitHub lookups are remembered for much less time than real data
+    @Value("${cache.negative.empty.ttl.ms:3600000}")
+    protected long negativeEmptyTtlMs;
+
+    @Value("${cache.negative.error.ttl.ms:600000}")
+    protected long negativeErrorTtlMs;
+
+    // Entries outlive their refresh interval by this much, so stale data can still be
+    // served while the cache-updater refreshes it. Only used by backends with TTLs.
+    @Value("${cache.ttl.grace.ms:172800000}")
+    protected long ttlGraceMs;
+
+    @Value("${export.jobs.ttl.ms:86400000}")
+    protected long exportJobsTtlMs;
+
+    // Fetched data is queued and written to the cache in batches, off the fetching threads
+    @Value("${cache.write.behind.enabled:false}")
+    protected boolean writeBehindEnabled;
+
+    @Value("${cache.write.behind.queue.capacity:10000}")
+    protected int writeBehindCapacity;
+
+    @Value("${cache.write.behind.batch.size:500}")
+    protected int writeBehindBatchSize;
+
+    @Value("${cache.write.behind.flush.interval.ms:200}")
+    protected long writeBehindFlushIntervalMs;
+
+    private WriteBehindQueue writeBehindQueue;
+
+    // Early refresh: larger betas refresh earlier. Entries without a recorded compute time
+    // are assumed to have taken the default.
+    @Value("${cache.early.refresh.beta:1.0}")
+    protected double earlyRefreshBeta;
+
+    @Value("${cache.early.refresh.default.compute.ms:1000}")
+    protected long defaultComputeTimeMs;
+
+    // Keys being refreshed in the background, so each is refreshed once at a time
+    private final Set<String> refreshesInFlight = ConcurrentHashMap.newKeySet();
+
+    @Value("${cache.generation.refresh.ms:5000}")
+    protected long generationRefreshMs;
+
+    // Number of published generations kept behind the current one, for rollback
+    @Value("${cache.generation.retain:1}")
+    protected int generationRetain;
+
+    // Generation that reads resolve against, re-read from the pointer at most every generationRefreshMs
+    private volatile long readGeneration;
+    private volatile long readGenerationCheckedAt;
+
+    // Generation being written by a refresh cycle, 0 outside of one
+    private volatile long writeGeneration;
+
     public abstract String getDelimiter();
 
     @Data
@@ -47,12 +134,62 @@ public abstract class CacheServiceAbs {
         private final long timestamp;
     }
 
+    /**
+     * A cached value with its expiration metadata, null if it has none
+     */
+    public record CachedValue<T>(T value, Expiration expiration) {
+    }
+
     protected CacheServiceAbs(Gson gson) {
         this.gson = gson;
     }
 
     protected abstract Long getInsertTime(String cachePath, String key);
 
+    /**
+     * Insert time and compute time of an entry, null if it isn't cached. Backends that don't
+     * record compute times only report the insert time.
+     */
+    protected Expiration getExpiration(String cachePath, String key) {
+        Long insertTime = getInsertTime(cachePath, key);
+        return insertTime != null ? Expiration.builder().timestamp(insertTime).build() : null;
+    }
+
+    /**
+     * Probabilistic early expiration (XFetch): an entry is refreshed before its refresh interval
+     * is over, with a probability that grows as the deadline gets closer and with the time the
+     * entry took to compute. Entries written together therefore don't all go stale at once.
+     */
+    protected boolean shouldRefresh(String cachePath, String key, Long refreshInterval) {
+        if (refreshInterval == null) {
+            return false;
+        }
+        try {
+            return shouldRefresh(getExpiration(cachePath, key), refreshInterval, cachePath + ":" + key);
+        } catch (Throwable e) {
+            log.error("Error checking cache entry age: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    private boolean shouldRefresh(Expiration expiration, long refreshInterval, String entry) {
+        if (expiration == null) {
+            return true;
+        }
+        long computeTimeMs = expiration.getComputeTimeMs() > 0 ? expiration.getComputeTimeMs()
+                : defaultComputeTimeMs;
+        long age = System.currentTimeMillis() - expiration.getTimestamp();
+        // -log(u) for u in (0, 1] is exponentially distributed, usually small, rarely large
+        double earlyBy = -computeTimeMs * earlyRefreshBeta
+                * Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        boolean refresh = age + earlyBy >= refreshInterval;
+        if (refresh) {
+            log.info("Refreshing cache entry (age: {} minutes, {} ms early): {}", Duration.ofMillis(age).toMinutes(),
+                    Math.max(0, refreshInterval - age), entry);
+        }
+        return refresh;
+    }
+
     protected boolean isCacheEntryStale(String cachePath, String key, Long refreshInterval) {
         try {
             Long lastModified = getInsertTime(cachePath, key);
@@ -92,10 +229,10 @@ public abstract class CacheServiceAbs {
             }, githubRefreshIntervalMs);
 
             if (cachedResponse.isPresent()
-                    && isCacheEntryStale(getGithubCachePath(), cacheKey, githubRefreshIntervalMs)) {
+                    && shouldRefresh(getGithubCachePath(), cacheKey, githubRefreshIntervalMs)) {
                 // Don't invalidate the cache entry now, refresh it asynchronously first
                 // and only replace it once we have the new data
-                doHttpCallAsync(supplier, getGithubCachePath(), cacheKey);
+                refreshAsync(getGithubCachePath(), cacheKey, () -> doGitHubCall(supplier, cacheKey));
             }
 
             if (cachedResponse.isPresent()) {
@@ -105,36 +242,153 @@ public abstract class CacheServiceAbs {
             }
         }
 
-        return doHttpCall(supplier, getGithubCachePath(), cacheKey);
+        // Also honoured when forcing an update, so failing pages aren't retried on every cycle
+        Optional<Tombstone> tombstone = getTombstone(cacheKey);
+        if (tombstone.isPresent()) {
+            log.debug("Negative cache hit for GitHub API response - city: {}, language: {}, page: {}",
+                    city.getId(), language, pageNumber);
+            return replayTombstone(tombstone.get(), new TypeToken<JsonObject>() {
+            });
+        }
+
+        return doGitHubCall(supplier, cacheKey);
+    }
+
+    /**
+     * Fetches a GitHub page and caches it. Empty pages and failures are stored as tombstones
+     * instead, with a shorter TTL. Timeouts and rate limits are transient and not remembered,
+     * and a passed deadline is left to the caller.
+     */
+    private Optional<JsonObject> doGitHubCall(Supplier<JsonObject> supplier, String cacheKey) {
+        JsonObject response;
+        long startTime = System.currentTimeMillis();
+        try {
+            response = supplier.get();
+        } catch (DeadlineExceededException e) {
+            throw e;
+        } catch (GithubTimeoutException | GithubRateLimitException | GithubTooFastException e) {
+            log.error("Error fetching data: {}", e.getMessage());
+            return Optional.empty();
+        } catch (Exception e) {
+            log.error("Error fetching data, remembering the failure: {}", e.getMessage());
+            putTombstone(cacheKey, Tombstone.builder()
+                    .reason(Tombstone.Reason.ERROR)
+                    .message(e.getMessage()));
+            return Optional.empty();
+        }
+
+        if (isEmptySearchPage(response)) {
+            // Drop any older non-empty page, so the empty result is what gets served
+            invalidate(getGithubCachePath(), cacheKey);
+            putTombstone(cacheKey, Tombstone.builder()
+                    .reason(Tombstone.Reason.EMPTY)
+                    .value(gson.toJson(response)));
+        } else {
+            write(getGithubCachePath(), cacheKey, response, System.currentTimeMillis() - startTime);
+        }
+        return Optional.of(response);
+    }
+
+    private static boolean isEmptySearchPage(JsonObject response) {
+        if (response == null || !response.has("data") || response.get("data").isJsonNull()) {
+            return true;
+        }
+        JsonObject data = response.getAsJsonObject("data");
+        return data.has("search") && data.getAsJsonObject("search").getAsJsonArray("nodes").isEmpty();
     }
 
     /**
-     * Specialized method for caching HTTP responses
+     * Tombstones of GitHub pages live under their own cache path, with the page's key, and
+     * expire sooner than the pages. Their age is checked too, for implementations without TTLs.
      */
-    public Optional<List<Contributor>> getHttpResponse(
+    protected Optional<Tombstone> getTombstone(String cacheKey) {
+        return get(getTombstoneCachePath(), cacheKey, new TypeToken<Tombstone>() {
+                }, null)
+                .filter(tombstone -> System.currentTimeMillis() - tombstone.getTimestamp() < getTombstoneTtl(
+                        tombstone.getReason()));
+    }
+
+    private void putTombstone(String cacheKey, Tombstone.TombstoneBuilder tombstone) {
+        put(getTombstoneCachePath(), cacheKey, tombstone.timestamp(System.currentTimeMillis()).build());
+    }
+
+    protected <T> Optional<T> replayTombstone(Tombstone tombstone, TypeToken<T> typeRef) {
+        if (tombstone.getReason() != Tombstone.Reason.EMPTY || tombstone.getValue() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(gson.fromJson(tombstone.getValue(), typeRef));
+    }
+
+    protected long getTombstoneTtl(Tombstone.Reason reason) {
+        return reason == Tombstone.Reason.EMPTY ? negativeEmptyTtlMs : negativeErrorTtlMs;
+    }
+
+    /**
+     * Rankings without contributors are refreshed as often as empty GitHub pages expire
+     */
+    private long getRefreshInterval(Leaderboard leaderboard, long refreshInterval) {
+        return leaderboard.getContributors().isEmpty() ? Math.min(refreshInterval, negativeEmptyTtlMs)
+                : refreshInterval;
+    }
+
+    /**
+     * Specialized method for caching HTTP responses. Each query's ranking is stored once,
+     * at least leaderboard.max.depth deep, and is returned whole, covering at least
+     * maxResults. Callers slice the results or the page they serve from it.
+     * The supplier is called with the depth to compute.
+     */
+    public Optional<Leaderboard> getHttpRanking(
+            String cityId,
+            String regionId,
+            String stateId,
+            String teamId,
+            String languageId,
+            int maxResults,
+            IntFunction<List<Contributor>> supplier) {
+        return getHttpRanking(cityId, regionId, stateId, teamId, languageId, maxResults, supplier, Deadline.NONE);
+    }
+
+    /**
+     * Same as above, waiting for another instance computing the ranking no longer than the deadline
+     */
+    public Optional<Leaderboard> getHttpRanking(
             String cityId,
             String regionId,
             String stateId,
             String teamId,
             String languageId,
             int maxResults,
-            Supplier<List<Contributor>> supplier) {
+            IntFunction<List<Contributor>> supplier,
+            Deadline deadline) {
 
-        String cacheKey = generateCacheKey(cityId, regionId, stateId, teamId, languageId, maxResults);
+        String cacheKey = generateCacheKey(cityId, regionId, stateId, teamId, languageId);
+        int depth = getFetchDepth(maxResults);
+        String readPath = readPath(getHttpCachePath());
+        String writePath = writePath(getHttpCachePath());
+        Optional<Leaderboard> shallowerResponse = Optional.empty();
 
         fetchFromCache: {
             if (forceCacheUpdate()) {
                 break fetchFromCache;
             }
 
-            Optional<List<Contributor>> cachedResponse = get(getHttpCachePath(), cacheKey,
-                    new TypeToken<List<Contributor>>() {
+            Optional<Leaderboard> cachedResponse = get(readPath, cacheKey,
+                    new TypeToken<Leaderboard>() {
                     }, httpRefreshIntervalMs);
 
-            if (cachedResponse.isPresent() && isCacheEntryStale(getHttpCachePath(), cacheKey, httpRefreshIntervalMs)) {
+            if (cachedResponse.isPresent() && !cachedResponse.get().covers(maxResults)) {
+                log.info("Cached ranking for key: {} is {} deep, fetching {}", cacheKey,
+                        cachedResponse.get().getDepth(), depth);
+                shallowerResponse = cachedResponse;
+                break fetchFromCache;
+            }
+
+            if (cachedResponse.isPresent() && shouldRefresh(readPath, cacheKey,
+                    getRefreshInterval(cachedResponse.get(), httpRefreshIntervalMs))) {
                 // Don't invalidate the cache entry now, refresh it asynchronously first
-                // and only replace it once we have the new data
-                doHttpCallAsync(supplier, getHttpCachePath(), cacheKey);
+                // and only replace it once we have the new data. Keep the watermark it reached.
+                int refreshDepth = Math.max(depth, cachedResponse.get().getDepth());
+                doHttpCallAsync(httpResponseSupplier(cacheKey, supplier, refreshDepth), writePath, cacheKey);
             }
 
             if (cachedResponse.isPresent()) {
@@ -144,21 +398,278 @@ public abstract class CacheServiceAbs {
 
             log.info("Cache miss for key: {}", cacheKey);
         }
-        return doHttpCall(supplier, getHttpCachePath(), cacheKey);
+        return computeMissing(httpResponseSupplier(cacheKey, supplier, depth), writePath, cacheKey,
+                new TypeToken<Leaderboard>() {
+                }, shallowerResponse, deadline);
+    }
+
+    /**
+     * Non-blocking variant of getHttpRanking for the reactive controllers. The cached ranking
+     * is read without blocking the calling thread, and refreshed in the background when due.
+     * A miss goes through getHttpRanking on a bounded elastic thread, the supplier fetches
+     * from GitHub with blocking calls.
+     */
+    public Mono<Leaderboard> getHttpRankingReactive(
+            String cityId,
+            String regionId,
+            String stateId,
+            String teamId,
+            String languageId,
+            int maxResults,
+            IntFunction<List<Contributor>> supplier,
+            Deadline deadline) {
+
+        Mono<Leaderboard> computed = Mono.fromCallable(() -> getHttpRanking(cityId, regionId, stateId, teamId,
+                languageId, maxResults, supplier, deadline).orElse(null))
+                .subscribeOn(Schedulers.boundedElastic());
+        if (forceCacheUpdate()) {
+            return computed;
+        }
+
+        String cacheKey = generateCacheKey(cityId, regionId, stateId, teamId, languageId);
+        return getReadGenerationReactive()
+                .flatMap(generation -> getReactive(generationPath(getHttpCachePath(), generation), cacheKey,
+                        new TypeToken<Leaderboard>() {
+                        }))
+                .filter(cached -> cached.value().covers(maxResults))
+                .map(cached -> {
+                    Leaderboard ranking = cached.value();
+                    if (shouldRefresh(cached.expiration(), getRefreshInterval(ranking, httpRefreshIntervalMs),
+                            getHttpCachePath() + getDelimiter() + cacheKey)) {
+                        int refreshDepth = Math.max(getFetchDepth(maxResults), ranking.getDepth());
+                        doHttpCallAsync(httpResponseSupplier(cacheKey, supplier, refreshDepth),
+                                writePath(getHttpCachePath()), cacheKey);
+                    }
+                    log.debug("Cache hit for key: {}", cacheKey);
+                    return ranking;
+                })
+                .switchIfEmpty(computed);
+    }
+
+    /**
+     * Specialized method for caching per-city leaderboards. A cached leaderboard that
+     * is shallower than maxResults is treated as a miss. The supplier is called with the
+     * depth to compute.
+     */
+    public Optional<Leaderboard> getCityLeaderboard(City city, String languageId, int maxResults,
+            IntFunction<List<Contributor>> supplier) {
+        return getCityLeaderboard(city, languageId, maxResults, supplier, Deadline.NONE);
+    }
+
+    /**
+     * Same as above, waiting for another instance computing the leaderboard no longer than the deadline
+     */
+    public Optional<Leaderboard> getCityLeaderboard(City city, String languageId, int maxResults,
+            IntFunction<List<Contributor>> supplier, Deadline deadline) {
+        String cacheKey = generateLeaderboardCacheKey(city.getId(), languageId);
+        int depth = getFetchDepth(maxResults);
+        String readPath = readPath(getLeaderboardCachePath());
+        String writePath = writePath(getLeaderboardCachePath());
+        Optional<Leaderboard> shallowerResponse = Optional.empty();
+
+        fetchFromCache: {
+            if (forceCacheUpdate()) {
+                break fetchFromCache;
+            }
+
+            Optional<Leaderboard> cachedResponse = get(readPath, cacheKey,
+                    new TypeToken<Leaderboard>() {
+                    }, githubRefreshIntervalMs);
+
+            if (cachedResponse.isPresent() && !cachedResponse.get().covers(maxResults)) {
+                log.info("Cached leaderboard for city: {}, language: {} is {} deep, fetching {}",
+                        city.getId(), languageId, cachedResponse.get().getDepth(), depth);
+                shallowerResponse = cachedResponse;
+                break fetchFromCache;
+            }
+
+            if (cachedResponse.isPresent()
+                    && shouldRefresh(readPath, cacheKey,
+                            getRefreshInterval(cachedResponse.get(), githubRefreshIntervalMs))) {
+                // Don't invalidate the cache entry now, refresh it asynchronously first
+                // and only replace it once we have the new data. Keep the watermark it reached.
+                int refreshDepth = Math.max(depth, cachedResponse.get().getDepth());
+                doHttpCallAsync(leaderboardSupplier(supplier, refreshDepth), writePath, cacheKey);
+            }
+
+            if (cachedResponse.isPresent()) {
+                log.debug("Cache hit for leaderboard - city: {}, language: {}", city.getId(), languageId);
+                return cachedResponse;
+            }
+        }
+
+        return computeMissing(leaderboardSupplier(supplier, depth), writePath, cacheKey,
+                new TypeToken<Leaderboard>() {
+                }, shallowerResponse, deadline);
+    }
+
+    /**
+     * Rankings are always computed at least leaderboard.max.depth deep, so that any
+     * smaller maxResults can be sliced from the same entry
+     */
+    protected int getFetchDepth(int maxResults) {
+        return Math.max(maxResults, leaderboardMaxDepth);
+    }
+
+    private Supplier<Leaderboard> leaderboardSupplier(IntFunction<List<Contributor>> supplier, int depth) {
+        return () -> Leaderboard.builder()
+                .contributors(supplier.apply(depth))
+                .depth(depth)
+                .build();
+    }
+
+    /**
+     * Computes a query's ranking and renders its response bodies alongside it, so that
+     * every write of the ranking also refreshes the pre-rendered bodies
+     */
+    private Supplier<Leaderboard> httpResponseSupplier(String cacheKey, IntFunction<List<Contributor>> supplier,
+            int depth) {
+        Supplier<Leaderboard> leaderboardSupplier = leaderboardSupplier(supplier, depth);
+        return () -> {
+            Leaderboard leaderboard = leaderboardSupplier.get();
+            putHttpResponseBodies(cacheKey, leaderboard);
+            return leaderboard;
+        };
+    }
+
+    private void putHttpResponseBodies(String cacheKey, Leaderboard leaderboard) {
+        if (httpBodyRenderer == null) {
+            return;
+        }
+        String writePath = writePath(getHttpBodyCachePath());
+        for (int maxResults : httpBodyMaxResults) {
+            try {
+                putBytes(writePath, generateHttpBodyCacheKey(cacheKey, maxResults),
+                        httpBodyRenderer.apply(leaderboard.top(maxResults)));
+            } catch (Exception e) {
+                log.error("Failed to render response body for key: {}: {}", cacheKey, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Pre-rendered, gzip-compressed response body of a query, served without deserializing
+     * the ranking. Stale bodies are not returned, so the regular path can refresh them.
+     */
+    public Optional<byte[]> getHttpResponseBody(String cityId, String regionId, String stateId, String teamId,
+            String languageId, int maxResults) {
+        if (forceCacheUpdate() || !httpBodyMaxResults.contains(maxResults)) {
+            return Optional.empty();
+        }
+
+        String cacheKey = generateHttpBodyCacheKey(
+                generateCacheKey(cityId, regionId, stateId, teamId, languageId), maxResults);
+        String readPath = readPath(getHttpBodyCachePath());
+        // Refreshing bodies are left to the regular path, which refreshes the ranking and its bodies
+        if (shouldRefresh(readPath, cacheKey, httpRefreshIntervalMs)) {
+            return Optional.empty();
+        }
+        return getBytes(readPath, cacheKey);
+    }
+
+    /**
+     * Metadata of a query's cached result, without reading the result itself. Identifies the
+     * version a client already has, so it can be confirmed without rendering the response.
+     */
+    public Optional<Expiration> getHttpResponseExpiration(String cityId, String regionId, String stateId,
+            String teamId, String languageId) {
+        if (forceCacheUpdate()) {
+            return Optional.empty();
+        }
+        String cacheKey = generateCacheKey(cityId, regionId, stateId, teamId, languageId);
+        return Optional.ofNullable(getExpiration(readPath(getHttpCachePath()), cacheKey));
+    }
+
+    /**
+     * Renders the final response body of a ranking, gzip-compressed
+     */
+    public void setHttpBodyRenderer(Function<List<Contributor>, byte[]> httpBodyRenderer) {
+        this.httpBodyRenderer = httpBodyRenderer;
+    }
+
+    /**
+     * Read the cached rankings of several queries in one multi-get, without computing or
+     * refreshing any. The result has one entry per query, in the same order.
+     */
+    public List<Optional<Leaderboard>> getCachedHttpRankings(List<SearchQuery> queries) {
+        if (forceCacheUpdate()) {
+            return queries.stream().map(query -> Optional.<Leaderboard>empty()).toList();
+        }
+        List<String> cacheKeys = new ArrayList<>(queries.size());
+        for (SearchQuery query : queries) {
+            cacheKeys.add(generateCacheKey(query.getCityId(), query.getRegionId(), query.getStateId(),
+                    query.getTeamId(), query.getLanguageId()));
+        }
+        return getAll(readPath(getHttpCachePath()), cacheKeys, new TypeToken<Leaderboard>() {
+        });
+    }
+
+    /**
+     * Refresh a ranking read with getCachedHttpRankings in the background if it is due, as
+     * getHttpRanking does on a hit. The supplier is called with the depth to compute.
+     */
+    public void refreshHttpRankingIfDue(SearchQuery query, Leaderboard cachedRanking,
+            IntFunction<List<Contributor>> supplier) {
+        if (forceCacheUpdate()) {
+            return;
+        }
+        String cacheKey = generateCacheKey(query.getCityId(), query.getRegionId(), query.getStateId(),
+                query.getTeamId(), query.getLanguageId());
+        if (shouldRefresh(readPath(getHttpCachePath()), cacheKey,
+                getRefreshInterval(cachedRanking, httpRefreshIntervalMs))) {
+            int refreshDepth = Math.max(getFetchDepth(query.getMaxResults()), cachedRanking.getDepth());
+            doHttpCallAsync(httpResponseSupplier(cacheKey, supplier, refreshDepth), writePath(getHttpCachePath()),
+                    cacheKey);
+        }
+    }
+
+    /**
+     * Read the cached leaderboards of several cities at once, without computing missing ones.
+     * The result has one entry per city ID, in the same order.
+     */
+    public List<Optional<Leaderboard>> getCachedCityLeaderboards(List<String> cityIds, String languageId) {
+        List<String> cacheKeys = new ArrayList<>(cityIds.size());
+        for (String cityId : cityIds) {
+            cacheKeys.add(generateLeaderboardCacheKey(cityId, languageId));
+        }
+        return getAll(readPath(getLeaderboardCachePath()), cacheKeys, new TypeToken<Leaderboard>() {
+        });
     }
 
     @Async
     protected <T> CompletableFuture<Void> doHttpCallAsync(Supplier<T> supplier, String cachePath, String cacheKey) {
-        return CompletableFuture.runAsync(() -> {
-            doHttpCall(supplier, cachePath, cacheKey);
-        });
+        return refreshAsync(cachePath, cacheKey, () -> doHttpCall(supplier, cachePath, cacheKey));
+    }
+
+    /**
+     * Run a background refresh of a key, unless one is already running in this instance
+     */
+    private CompletableFuture<Void> refreshAsync(String cachePath, String cacheKey, Runnable refresh) {
+        String refreshKey = cachePath + getDelimiter() + cacheKey;
+        if (!refreshesInFlight.add(refreshKey)) {
+            log.debug("Refresh already in progress for key: {}", refreshKey);
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(refresh)
+                .whenComplete((result, throwable) -> refreshesInFlight.remove(refreshKey));
+    }
+
+    /**
+     * Compute an entry that is missing from the cache. Backends shared by several instances
+     * override this so that only one of them computes a given entry at a time; the others
+     * wait for it, no longer than the deadline, or return the fallback, e.g. a shallower ranking.
+     */
+    protected <T> Optional<T> computeMissing(Supplier<T> supplier, String cachePath, String cacheKey,
+            TypeToken<T> typeRef, Optional<T> fallback, Deadline deadline) {
+        return doHttpCall(supplier, cachePath, cacheKey);
     }
 
     protected <T> Optional<T> doHttpCall(Supplier<T> supplier, String cachePath, String cacheKey) {
         T response;
         try {
+            long startTime = System.currentTimeMillis();
             response = supplier.get();
-            put(cachePath, cacheKey, response);
+            write(cachePath, cacheKey, response, System.currentTimeMillis() - startTime);
             return Optional.of(response);
         } catch (Exception e) {
             log.error("Error fetching data: {}", e.getMessage());
@@ -166,27 +677,178 @@ public abstract class CacheServiceAbs {
         }
     }
 
+    /**
+     * Put a fetched value in the cache, through the write-behind queue when it is enabled
+     */
+    protected <T> void write(String cachePath, String key, T value, long computeTimeMs) {
+        if (!writeBehindEnabled || value == null) {
+            put(cachePath, key, value, computeTimeMs);
+            return;
+        }
+        getWriteBehindQueue().enqueue(cachePath, CacheEntry.builder()
+                .key(key)
+                .value(gson.toJson(value))
+                .insertTime(System.currentTimeMillis())
+                .computeTimeMs(computeTimeMs)
+                .build());
+    }
+
+    private synchronized WriteBehindQueue getWriteBehindQueue() {
+        if (writeBehindQueue == null) {
+            writeBehindQueue = new WriteBehindQueue(this::putAll, writeBehindCapacity, writeBehindBatchSize,
+                    writeBehindFlushIntervalMs);
+            log.info("Started cache write-behind queue with capacity {}", writeBehindCapacity);
+        }
+        return writeBehindQueue;
+    }
+
+    /**
+     * Write all queued writes to the cache
+     */
+    public void flushWrites() {
+        WriteBehindQueue queue;
+        synchronized (this) {
+            queue = writeBehindQueue;
+        }
+        if (queue != null) {
+            queue.flush();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void closeWriteBehindQueue() {
+        if (writeBehindQueue != null) {
+            writeBehindQueue.close();
+            writeBehindQueue = null;
+        }
+    }
+
     /**
      * Get a value from the cache
      */
     public abstract <T> Optional<T> get(String cachePath, String key, TypeToken<T> typeRef, Long refreshInterval);
 
+    /**
+     * Read a value with its expiration metadata without blocking the caller, empty on a miss.
+     * Backends with a non-blocking client override this, by default the value is read on a
+     * bounded elastic thread.
+     */
+    protected <T> Mono<CachedValue<T>> getReactive(String cachePath, String key, TypeToken<T> typeRef) {
+        return Mono.fromCallable(() -> get(cachePath, key, typeRef, null)
+                .map(value -> new CachedValue<>(value, getExpiration(cachePath, key)))
+                .orElse(null))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Get several values from the cache at once, ignoring their age.
+     * Implementations backed by a remote store should override this with a single round-trip.
+     */
+    public <T> List<Optional<T>> getAll(String cachePath, List<String> keys, TypeToken<T> typeRef) {
+        List<Optional<T>> values = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            values.add(get(cachePath, key, typeRef, null));
+        }
+        return values;
+    }
+
     /**
      * Put a value in the cache
      */
     public abstract <T> void put(String cachePath, String key, T value);
 
+    /**
+     * Put a value in the cache along with the time it took to compute, used for early refresh.
+     * Backends that can't store it drop it.
+     */
+    protected <T> void put(String cachePath, String key, T value, long computeTimeMs) {
+        put(cachePath, key, value);
+    }
+
+    /**
+     * Get raw bytes from the cache, stored as-is without JSON serialization
+     */
+    public abstract Optional<byte[]> getBytes(String cachePath, String key);
+
+    /**
+     * Put raw bytes in the cache, stored as-is without JSON serialization
+     */
+    public abstract void putBytes(String cachePath, String key, byte[] value);
+
     /**
      * Remove a value from the cache
      */
     public abstract void invalidate(String cachePath, String key);
 
+    /**
+     * Atomically add to a counter and return its new value, a missing counter starts at 0.
+     * Every writer of the cache sees distinct values.
+     */
+    public abstract long increment(String cachePath, String key, long delta);
+
+    /**
+     * Stream every entry stored under a cache path, in its serialized form
+     */
+    public abstract void forEachEntry(String cachePath, Consumer<CacheEntry> consumer);
+
+    /**
+     * Write serialized entries in bulk, keeping their original insert time
+     */
+    public abstract void putAll(String cachePath, List<CacheEntry> entries);
+
+    /**
+     * Remove every entry stored under a cache path
+     */
+    public abstract void deletePath(String cachePath);
+
+    /**
+     * Time to live of the entries under a cache path: its refresh interval plus a grace window.
+     * Tombstones expire as soon as they are no longer honoured, export jobs and their zips
+     * export.jobs.ttl.ms after they were last written. Paths without a refresh interval, like
+     * the readiness flag, never expire.
+     */
+    protected Duration getTtl(String cachePath) {
+        if (cachePath.equals(getTombstoneCachePath())) {
+            return Duration.ofMillis(Math.max(negativeEmptyTtlMs, negativeErrorTtlMs));
+        }
+        if (cachePath.equals(EXPORT_JOB_PATH) || cachePath.equals(EXPORT_ARTIFACT_PATH)) {
+            return Duration.ofMillis(exportJobsTtlMs);
+        }
+        Long refreshInterval = null;
+        if (cachePath.equals(getGithubCachePath()) || isPath(cachePath, getLeaderboardCachePath())) {
+            refreshInterval = githubRefreshIntervalMs;
+        } else if (isPath(cachePath, getHttpCachePath()) || isPath(cachePath, getHttpBodyCachePath())) {
+            refreshInterval = httpRefreshIntervalMs;
+        }
+        return refreshInterval != null ? Duration.ofMillis(refreshInterval + ttlGraceMs) : null;
+    }
+
+    /**
+     * Remove orphaned entries and report key counts and sizes per cache path.
+     * Backends without metadata to reconcile have nothing to compact.
+     */
+    public Map<String, CacheStats> compact() {
+        return Map.of();
+    }
+
+    /**
+     * Memory used by the cache backend, if it can report it
+     */
+    public Long getUsedMemoryBytes() {
+        return null;
+    }
+
     protected abstract String getHttpCachePath();
 
     protected abstract String getGithubCachePath();
 
-    protected String generateCacheKey(String cityId, String regionId, String stateId, String teamId, String language,
-            int maxResults) {
+    protected abstract String getLeaderboardCachePath();
+
+    protected abstract String getHttpBodyCachePath();
+
+    protected abstract String getTombstoneCachePath();
+
+    protected String generateCacheKey(String cityId, String regionId, String stateId, String teamId, String language) {
         StringBuilder key = new StringBuilder();
         key.append(cityId != null ? cityId : NONE)
                 .append(getDelimiter())
@@ -196,9 +858,7 @@ public abstract class CacheServiceAbs {
                 .append(getDelimiter())
                 .append(teamId != null ? teamId : NONE)
                 .append(getDelimiter())
-                .append(language != null ? language : NONE)
-                .append(getDelimiter())
-                .append(maxResults);
+                .append(language != null ? language : NONE);
         return key.toString();
     }
 
@@ -214,12 +874,40 @@ public abstract class CacheServiceAbs {
         return key.toString();
     }
 
+    protected String generateHttpBodyCacheKey(String httpCacheKey, int maxResults) {
+        StringBuilder key = new StringBuilder();
+        key.append(httpCacheKey)
+                .append(getDelimiter())
+                .append(maxResults);
+        return key.toString();
+    }
+
+    protected String generateLeaderboardCacheKey(String cityId, String languageId) {
+        StringBuilder key = new StringBuilder();
+        key.append(cityId)
+                .append(getDelimiter())
+                .append(languageId);
+        return key.toString();
+    }
+
     public boolean isCacheReady() {
 
         if (!cacheShouldBeReady) {
             return true;
         }
 
+        return isCacheWarm();
+    }
+
+    /**
+     * The cache holds a complete data set once a generation has been published. The legacy
+     * readiness flag is still honoured for caches written before generations existed.
+     */
+    protected boolean isCacheWarm() {
+        return getReadGeneration() > 0 || isCacheReadyFlagSet();
+    }
+
+    protected boolean isCacheReadyFlagSet() {
         Optional<Boolean> isReady = get(CACHE_IS_READY_PATH, CACHE_IS_READY_KEY, new TypeToken<Boolean>() {
         }, null);
 
@@ -233,6 +921,220 @@ public abstract class CacheServiceAbs {
         put(CACHE_IS_READY_PATH, CACHE_IS_READY_KEY, isReady);
     }
 
+    private static final String EXPORT_JOB_PATH = "export_job";
+    private static final String EXPORT_ARTIFACT_PATH = "export_artifact";
+
+    /**
+     * Export jobs and their zips are kept here rather than by the instance running the job, so
+     * that any instance sharing the cache can answer for them. A zip is stored in chunks, each
+     * its own entry, so it is never held whole.
+     */
+    public Optional<ExportJob> getExportJob(String id) {
+        return get(EXPORT_JOB_PATH, id, new TypeToken<ExportJob>() {
+        }, null);
+    }
+
+    public void putExportJob(ExportJob job) {
+        put(EXPORT_JOB_PATH, job.getId(), job);
+    }
+
+    public Optional<byte[]> getExportArtifactChunk(String id, int index) {
+        return getBytes(EXPORT_ARTIFACT_PATH, exportArtifactChunkKey(id, index));
+    }
+
+    public void putExportArtifactChunk(String id, int index, byte[] chunk) {
+        putBytes(EXPORT_ARTIFACT_PATH, exportArtifactChunkKey(id, index), chunk);
+    }
+
+    public void invalidateExportArtifact(String id, int chunks) {
+        for (int index = 0; index < chunks; index++) {
+            invalidate(EXPORT_ARTIFACT_PATH, exportArtifactChunkKey(id, index));
+        }
+    }
+
+    public void invalidateExportJob(ExportJob job) {
+        invalidate(EXPORT_JOB_PATH, job.getId());
+        invalidateExportArtifact(job.getId(), job.getArtifactChunks());
+    }
+
+    private static String exportArtifactChunkKey(String id, int index) {
+        return id + "." + index;
+    }
+
+    private static final String GENERATION_PATH = "cache_generation";
+    private static final String GENERATION_KEY = "current";
+    // Last generation number handed out, and the generations published, oldest first
+    private static final String GENERATION_COUNTER_KEY = "counter";
+    private static final String GENERATION_HISTORY_KEY = "published";
+    private static final String GENERATION_SEPARATOR = ".g";
+
+    /**
+     * Generation currently published by the cache-updater, 0 if none was published yet
+     */
+    public long getReadGeneration() {
+        long now = System.currentTimeMillis();
+        if (now - readGenerationCheckedAt >= generationRefreshMs) {
+            readGeneration = get(GENERATION_PATH, GENERATION_KEY, new TypeToken<Long>() {
+            }, null).orElse(0L);
+            readGenerationCheckedAt = now;
+        }
+        return readGeneration;
+    }
+
+    /**
+     * getReadGeneration for reactive callers, the pointer is only re-read off the calling thread
+     */
+    protected Mono<Long> getReadGenerationReactive() {
+        if (System.currentTimeMillis() - readGenerationCheckedAt < generationRefreshMs) {
+            return Mono.just(readGeneration);
+        }
+        return Mono.fromCallable(this::getReadGeneration).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Start writing a new generation. Until it is published, rankings and response bodies
+     * are written under its own paths and readers keep seeing the current generation.
+     * GitHub pages are not versioned, they are shared by all generations. Numbers come from
+     * a shared counter, so concurrent writers, such as a refresh cycle and a snapshot load on
+     * another instance, never write to the same generation.
+     */
+    public long beginGeneration() {
+        readGenerationCheckedAt = 0;
+        long published = getReadGeneration();
+        long generation = increment(GENERATION_PATH, GENERATION_COUNTER_KEY, 1);
+        // The counter starts behind a pointer published before it existed. The generation after
+        // the pointer is skipped too, a cycle numbered from the pointer may have left it half written.
+        if (generation <= published) {
+            generation = increment(GENERATION_PATH, GENERATION_COUNTER_KEY, published + 2 - generation);
+        }
+        writeGeneration = generation;
+        log.info("Writing cache generation {}", generation);
+        return generation;
+    }
+
+    /**
+     * Point readers at a generation with a single write, then remove the generations
+     * that are no longer retained. A retained generation can be published again to roll back.
+     */
+    public void publishGeneration(long generation) {
+        flushWrites();
+        long previous = get(GENERATION_PATH, GENERATION_KEY, new TypeToken<Long>() {
+        }, null).orElse(0L);
+        put(GENERATION_PATH, GENERATION_KEY, generation);
+        readGeneration = generation;
+        readGenerationCheckedAt = System.currentTimeMillis();
+        writeGeneration = 0;
+        log.info("Published cache generation {}", generation);
+
+        // Generation numbers have gaps and other writers may be using the ones in between,
+        // only generations that were published are ever retired
+        List<Long> history = new ArrayList<>(get(GENERATION_PATH, GENERATION_HISTORY_KEY,
+                new TypeToken<List<Long>>() {
+                }, null).orElseGet(() -> previous > 0 ? List.of(previous) : List.of()));
+        history.remove(Long.valueOf(generation));
+        history.add(generation);
+        List<Long> retired = history.subList(0, Math.max(0, history.size() - generationRetain - 1));
+        List<Long> expiredGenerations = new ArrayList<>(retired);
+        retired.clear();
+        put(GENERATION_PATH, GENERATION_HISTORY_KEY, history);
+        if (!expiredGenerations.isEmpty()) {
+            CompletableFuture.runAsync(() -> expiredGenerations.forEach(this::deleteGeneration));
+        }
+    }
+
+    /**
+     * Drop a generation that failed verification, readers never saw it
+     */
+    public void abandonGeneration(long generation) {
+        flushWrites();
+        writeGeneration = 0;
+        deleteGeneration(generation);
+        log.warn("Abandoned cache generation {}", generation);
+    }
+
+    /**
+     * A generation is complete once it holds the "all cities" ranking of every language, each
+     * with contributors unless the current generation has none for it either. A cycle whose
+     * GitHub calls failed still writes its rankings, empty, and must not replace good ones.
+     */
+    public boolean isGenerationComplete(long generation, List<String> languageIds) {
+        flushWrites();
+        List<String> cacheKeys = new ArrayList<>(languageIds.size());
+        for (String languageId : languageIds) {
+            cacheKeys.add(generateCacheKey(null, null, null, null, languageId));
+        }
+        TypeToken<Leaderboard> typeRef = new TypeToken<Leaderboard>() {
+        };
+        List<Optional<Leaderboard>> rankings = getAll(generationPath(getHttpCachePath(), generation), cacheKeys,
+                typeRef);
+        List<Optional<Leaderboard>> currentRankings = getAll(readPath(getHttpCachePath()), cacheKeys, typeRef);
+        for (int i = 0; i < cacheKeys.size(); i++) {
+            if (rankings.get(i).isEmpty()) {
+                log.warn("Cache generation {} has no ranking for language {}", generation, languageIds.get(i));
+                return false;
+            }
+            boolean hadContributors = currentRankings.get(i)
+                    .map(ranking -> !ranking.getContributors().isEmpty())
+                    .orElse(false);
+            if (rankings.get(i).get().getContributors().isEmpty() && hadContributors) {
+                log.warn("Cache generation {} lost every contributor of language {}", generation,
+                        languageIds.get(i));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void deleteGeneration(long generation) {
+        // Generation 0 is the unversioned path, never a generation of its own to delete
+        if (generation <= 0) {
+            return;
+        }
+        for (String cachePath : getGenerationalPaths()) {
+            deletePath(generationPath(cachePath, generation));
+        }
+    }
+
+    protected List<String> getGenerationalPaths() {
+        return List.of(getHttpCachePath(), getHttpBodyCachePath(), getLeaderboardCachePath());
+    }
+
+    /**
+     * Path of a versioned cache path in a given generation. Generation 0 is the unversioned
+     * path, which holds the data written before generations existed.
+     */
+    protected String generationPath(String cachePath, long generation) {
+        return generation > 0 ? cachePath + GENERATION_SEPARATOR + generation : cachePath;
+    }
+
+    protected String readPath(String cachePath) {
+        return generationPath(cachePath, getReadGeneration());
+    }
+
+    protected String writePath(String cachePath) {
+        long generation = writeGeneration;
+        return generationPath(cachePath, generation > 0 ? generation : getReadGeneration());
+    }
+
+    /**
+     * Whether a cache path is the given path or one of its generations
+     */
+    protected boolean isPath(String cachePath, String basePath) {
+        return cachePath.equals(basePath) || cachePath.startsWith(basePath + GENERATION_SEPARATOR);
+    }
+
+    /**
+     * The unversioned path of a cache path
+     */
+    protected String basePath(String cachePath) {
+        for (String basePath : getGenerationalPaths()) {
+            if (isPath(cachePath, basePath)) {
+                return basePath;
+            }
+        }
+        return cachePath;
+    }
+
     public boolean forceCacheUpdate() {
         return getCacheMode() == CacheMode.FORCE_UPDATE;
     }
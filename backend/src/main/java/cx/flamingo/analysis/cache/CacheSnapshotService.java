@@ -0,0 +1,339 @@
+package cx.flamingo.analysis.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import cx.flamingo.analysis.cache.impl.ReadOnlyCacheService;
+import cx.flamingo.analysis.cache.model.CacheEntry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exports the github, http and leaderboard cache paths into a single gzip-compressed,
+ * CRC32-checksummed archive, and bulk-loads such an archive into an empty cache at startup.
+ * Exports read the published generation, loads write and publish a new one.
+ *
+ * Archive layout (inside the gzip stream): magic, version, key delimiter, creation time,
+ * then one record per entry (marker 1, path name, key, insert time, compute time, value
+ * length, value), then marker 0, the entry count and the CRC32 of everything before the
+ * checksum. Version 1 records have no compute time, they still load.
+ */
+@Slf4j
+@Service
+public class CacheSnapshotService {
+
+    private static final int MAGIC = 0x4D4C4753; // "MLGS"
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_COMPUTE_TIME = 1;
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    private record SnapshotHeader(int version, String delimiter) {
+    }
+
+    private final CacheServiceAbs cacheService;
+
+    @Value("${cache.snapshot.export.path:}")
+    private String exportPath;
+
+    @Value("${cache.snapshot.load.path:}")
+    private String loadPath;
+
+    @Value("${cache.snapshot.interval.ms:0}")
+    private long exportIntervalMs;
+
+    private ScheduledExecutorService exporter;
+
+    public CacheSnapshotService(CacheServiceAbs cacheService) {
+        this.cacheService = cacheService;
+    }
+
+    @PostConstruct
+    private void init() {
+        loadConfiguredSnapshot();
+
+        if (isExportEnabled() && exportIntervalMs > 0) {
+            // Scheduling is disabled in the backend-service, so exports run on their own thread
+            exporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "CacheSnapshotExporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            exporter.scheduleWithFixedDelay(this::exportPeriodically, exportIntervalMs, exportIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        if (exporter != null) {
+            exporter.shutdownNow();
+            // Keep what was cached since the last export
+            exportPeriodically();
+        }
+    }
+
+    private void exportPeriodically() {
+        try {
+            exportSnapshot();
+        } catch (Exception e) {
+            log.error("Error exporting cache snapshot: {}", e.getMessage());
+        }
+    }
+
+    private void loadConfiguredSnapshot() {
+        if (loadPath == null || loadPath.isBlank()) {
+            return;
+        }
+        if (cacheService instanceof ReadOnlyCacheService) {
+            log.info("Read-only cache, skipping snapshot load");
+            return;
+        }
+        if (cacheService.isCacheWarm()) {
+            log.info("Cache is already warm, skipping snapshot load");
+            return;
+        }
+
+        Path snapshot = Paths.get(loadPath);
+        if (!Files.exists(snapshot)) {
+            log.info("No cache snapshot found at {}", snapshot);
+            return;
+        }
+
+        try {
+            loadSnapshot(snapshot);
+        } catch (IOException e) {
+            log.error("Failed to load cache snapshot from {}: {}", snapshot, e.getMessage());
+        }
+    }
+
+    public boolean isExportEnabled() {
+        return exportPath != null && !exportPath.isBlank();
+    }
+
+    /**
+     * Export to the configured cache.snapshot.export.path
+     */
+    public void exportSnapshot() throws IOException {
+        exportSnapshot(Paths.get(exportPath));
+    }
+
+    /**
+     * Stream all cache entries into a snapshot file. The snapshot is written next to the
+     * target and moved into place once complete, so readers never see a partial archive.
+     */
+    public synchronized long exportSnapshot(Path target) throws IOException {
+        Instant startTime = Instant.now();
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        AtomicLong count = new AtomicLong();
+
+        try (CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)), new CRC32());
+                DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(cacheService.getDelimiter());
+            out.writeLong(System.currentTimeMillis());
+
+            for (Map.Entry<String, String> path : getSnapshotPaths(cacheService.getReadGeneration()).entrySet()) {
+                cacheService.forEachEntry(path.getValue(), entry -> {
+                    try {
+                        writeEntry(out, path.getKey(), entry);
+                        count.incrementAndGet();
+                    } catch (IOException e) {
+                        throw new SnapshotException(e);
+                    }
+                });
+            }
+
+            out.writeByte(0);
+            out.writeLong(count.get());
+            out.flush();
+            out.writeLong(checked.getChecksum().getValue());
+        } catch (SnapshotException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Exported {} cache entries to {} ({} bytes) in {} seconds", count.get(), target, Files.size(target),
+                Duration.between(startTime, Instant.now()).getSeconds());
+        return count.get();
+    }
+
+    /**
+     * Verify a snapshot's checksum, then bulk-load its entries with one sequential read into
+     * a new cache generation, published once the whole snapshot is loaded
+     */
+    public long loadSnapshot(Path snapshot) throws IOException {
+        Instant startTime = Instant.now();
+        verifySnapshot(snapshot);
+
+        long generation = cacheService.beginGeneration();
+        Map<String, String> paths = getSnapshotPaths(generation);
+        Map<String, List<CacheEntry>> batches = new LinkedHashMap<>();
+        long count = 0;
+
+        try (DataInputStream in = openSnapshot(snapshot)) {
+            int version = readHeader(in).version();
+            while (in.readByte() == 1) {
+                String pathName = in.readUTF();
+                CacheEntry entry = readEntry(in, version);
+                String cachePath = paths.get(pathName);
+                if (cachePath == null) {
+                    continue;
+                }
+
+                List<CacheEntry> batch = batches.computeIfAbsent(cachePath, path -> new ArrayList<>());
+                batch.add(entry);
+                if (batch.size() >= LOAD_BATCH_SIZE) {
+                    cacheService.putAll(cachePath, batch);
+                    batch.clear();
+                }
+                count++;
+            }
+        } catch (IOException | RuntimeException e) {
+            cacheService.abandonGeneration(generation);
+            throw e;
+        }
+        batches.forEach((cachePath, batch) -> {
+            if (!batch.isEmpty()) {
+                cacheService.putAll(cachePath, batch);
+            }
+        });
+
+        if (count > 0) {
+            cacheService.publishGeneration(generation);
+        } else {
+            cacheService.abandonGeneration(generation);
+        }
+
+        log.info("Loaded {} cache entries from snapshot {} in {} ms", count, snapshot,
+                Duration.between(startTime, Instant.now()).toMillis());
+        return count;
+    }
+
+    private void verifySnapshot(Path snapshot) throws IOException {
+        CRC32 crc = new CRC32();
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(new GZIPInputStream(Files.newInputStream(snapshot), 64 * 1024)), crc);
+                DataInputStream in = new DataInputStream(checked)) {
+            SnapshotHeader header = readHeader(in);
+            String delimiter = header.delimiter();
+            if (!delimiter.equals(cacheService.getDelimiter())) {
+                throw new IOException(String.format("Snapshot keys use delimiter '%s' but the cache uses '%s'",
+                        delimiter, cacheService.getDelimiter()));
+            }
+
+            long count = 0;
+            while (in.readByte() == 1) {
+                in.readUTF();
+                readEntry(in, header.version());
+                count++;
+            }
+            long expectedCount = in.readLong();
+            long actualChecksum = crc.getValue();
+            long expectedChecksum = in.readLong();
+
+            if (count != expectedCount || actualChecksum != expectedChecksum) {
+                throw new IOException(String.format("Corrupted snapshot %s: %d/%d entries, checksum %x/%x",
+                        snapshot, count, expectedCount, actualChecksum, expectedChecksum));
+            }
+        }
+    }
+
+    private DataInputStream openSnapshot(Path snapshot) throws IOException {
+        return new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(snapshot), 64 * 1024)));
+    }
+
+    private SnapshotHeader readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a cache snapshot");
+        }
+        int version = in.readInt();
+        if (version != VERSION && version != VERSION_WITHOUT_COMPUTE_TIME) {
+            throw new IOException("Unsupported cache snapshot version: " + version);
+        }
+        String delimiter = in.readUTF();
+        in.readLong();
+        return new SnapshotHeader(version, delimiter);
+    }
+
+    private void writeEntry(DataOutputStream out, String pathName, CacheEntry entry) throws IOException {
+        byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+        out.writeByte(1);
+        out.writeUTF(pathName);
+        out.writeUTF(entry.getKey());
+        out.writeLong(entry.getInsertTime());
+        out.writeLong(entry.getComputeTimeMs());
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private CacheEntry readEntry(DataInputStream in, int version) throws IOException {
+        String key = in.readUTF();
+        long insertTime = in.readLong();
+        long computeTimeMs = version == VERSION_WITHOUT_COMPUTE_TIME ? 0 : in.readLong();
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        return CacheEntry.builder()
+                .key(key)
+                .value(new String(value, StandardCharsets.UTF_8))
+                .insertTime(insertTime)
+                .computeTimeMs(computeTimeMs)
+                .build();
+    }
+
+    /**
+     * Snapshots refer to cache paths by name, so they can be loaded into any implementation
+     * and any generation
+     */
+    private Map<String, String> getSnapshotPaths(long generation) {
+        Map<String, String> paths = new LinkedHashMap<>();
+        paths.put("github", cacheService.getGithubCachePath());
+        paths.put("http", cacheService.generationPath(cacheService.getHttpCachePath(), generation));
+        paths.put("leaderboard", cacheService.generationPath(cacheService.getLeaderboardCachePath(), generation));
+        return paths;
+    }
+
+    private static class SnapshotException extends RuntimeException {
+        SnapshotException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package cx.flamingo.analysis.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import cx.flamingo.analysis.cache.model.CacheEntry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded queue of pending cache writes, flushed in batches by a background thread.
+ * Producers block when the queue is full, so the crawl slows down to the cache's pace
+ * instead of buffering without limit.
+ */
+@Slf4j
+public class WriteBehindQueue {
+
+    private record PendingWrite(String cachePath, CacheEntry entry) {
+    }
+
+    private final BlockingQueue<PendingWrite> queue;
+    private final BiConsumer<String, List<CacheEntry>> writer;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final Object flushLock = new Object();
+    private final Thread flusher;
+    // Writes queued and written so far. The background thread takes a batch off the queue
+    // before it gets flushLock, flush() waits on these for a batch in its hands.
+    private final AtomicLong enqueued = new AtomicLong();
+    private long written;
+
+    private volatile boolean running = true;
+
+    /**
+     * @param writer bulk write of the entries of one cache path
+     */
+    public WriteBehindQueue(BiConsumer<String, List<CacheEntry>> writer, int capacity, int batchSize,
+            long flushIntervalMs) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = writer;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.flusher = new Thread(this::run, "CacheWriteBehind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queue a write, blocking while the queue is full
+     */
+    public void enqueue(String cachePath, CacheEntry entry) {
+        PendingWrite write = new PendingWrite(cachePath, entry);
+        enqueued.incrementAndGet();
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while queueing cache write for key: '{}', writing it directly", entry.getKey());
+            synchronized (flushLock) {
+                writeBatch(List.of(write));
+            }
+        }
+    }
+
+    /**
+     * Write everything queued so far. Once this returns, all writes queued before the call
+     * are in the cache.
+     */
+    public void flush() {
+        long target = enqueued.get();
+        synchronized (flushLock) {
+            while (written < target) {
+                if (!queue.isEmpty()) {
+                    writeBatch(drain(null));
+                    continue;
+                }
+                if (!flusher.isAlive()) {
+                    log.warn("{} cache writes were lost by the write-behind thread", target - written);
+                    return;
+                }
+                // The background thread holds the rest, it writes them once it has the lock
+                try {
+                    flushLock.wait(flushIntervalMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Interrupted while flushing cache writes, {} left", target - written);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the background thread and write what is left
+     */
+    public void close() {
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        log.info("Cache write-behind queue flushed and closed");
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                PendingWrite first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                synchronized (flushLock) {
+                    writeBatch(drain(first));
+                }
+            } catch (InterruptedException e) {
+                // Closing, the remaining writes are flushed by close()
+                return;
+            } catch (Exception e) {
+                log.error("Failed to flush cache writes: {}", e.getMessage());
+            }
+        }
+    }
+
+    private List<PendingWrite> drain(PendingWrite first) {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        if (first != null) {
+            batch.add(first);
+        }
+        queue.drainTo(batch, batchSize - batch.size());
+        return batch;
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        Map<String, List<CacheEntry>> entriesByPath = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            entriesByPath.computeIfAbsent(write.cachePath(), path -> new ArrayList<>()).add(write.entry());
+        }
+        entriesByPath.forEach((cachePath, entries) -> {
+            try {
+                writer.accept(cachePath, entries);
+            } catch (Exception e) {
+                log.error("Failed to write {} cache entries to '{}': {}", entries.size(), cachePath, e.getMessage());
+            }
+        });
+        // Called with flushLock held
+        written += batch.size();
+        flushLock.notifyAll();
+        log.debug("Flushed {} cache writes", batch.size());
+    }
+}
@@ -1,11 +1,23 @@
 package cx.flamingo.analysis.cache.impl;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -14,6 +26,7 @@ import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 import cx.flamingo.analysis.cache.CacheServiceAbs;
+import cx.flamingo.analysis.cache.model.CacheEntry;
 import cx.flamingo.analysis.config.CacheConfig.CacheMode;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
@@ -28,6 +41,15 @@ public class DiskCacheService extends CacheServiceAbs {
     @Value("${http.cache.path}")
     protected String httpCachePath;
 
+    @Value("${leaderboard.cache.path}")
+    protected String leaderboardCachePath;
+
+    @Value("${http.body.cache.path}")
+    protected String httpBodyCachePath;
+
+    @Value("${tombstone.cache.path}")
+    protected String tombstoneCachePath;
+
     public DiskCacheService(Gson gson) {
         super(gson);
     }
@@ -41,6 +63,9 @@ public class DiskCacheService extends CacheServiceAbs {
     private void init() {
         createCacheDirectory(getGithubCachePath());
         createCacheDirectory(getHttpCachePath());
+        createCacheDirectory(getLeaderboardCachePath());
+        createCacheDirectory(getHttpBodyCachePath());
+        createCacheDirectory(getTombstoneCachePath());
     }
 
     @Override
@@ -53,9 +78,24 @@ public class DiskCacheService extends CacheServiceAbs {
         return httpCachePath;
     }
 
+    @Override
+    protected String getLeaderboardCachePath() {
+        return leaderboardCachePath;
+    }
+
+    @Override
+    protected String getHttpBodyCachePath() {
+        return httpBodyCachePath;
+    }
+
+    @Override
+    protected String getTombstoneCachePath() {
+        return tombstoneCachePath;
+    }
+
     @Override
     protected Long getInsertTime(String cachePath, String key) {
-        Path filePath = Paths.get(cachePath, key + ".json");
+        Path filePath = Paths.get(cachePath, key + getFileExtension(cachePath));
         try {
             BasicFileAttributes attrs = Files.readAttributes(filePath, BasicFileAttributes.class);
             return attrs.lastModifiedTime().toMillis();
@@ -144,8 +184,61 @@ public class DiskCacheService extends CacheServiceAbs {
     }
 
     @Override
-    public void invalidate(String cachePath, String key) {
+    public Optional<byte[]> getBytes(String cachePath, String key) {
+        Path filePath = Paths.get(cachePath, key + getFileExtension(cachePath));
+        try {
+            return Optional.of(Files.readAllBytes(filePath));
+        } catch (NoSuchFileException e) {
+            log.debug("Cache miss for key: '{}'", key);
+            return Optional.empty();
+        } catch (IOException e) {
+            log.error("Failed to read cache for key '{}': {}", key, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void putBytes(String cachePath, String key, byte[] value) {
+        Path filePath = Paths.get(cachePath, key + getFileExtension(cachePath));
+        try {
+            Files.createDirectories(filePath.getParent());
+            Files.write(filePath, value);
+            log.info("Cached {} bytes in file system for key: '{}'", value.length, key);
+        } catch (IOException e) {
+            log.error("Failed to write file cache for key '{}': {}", key, e.getMessage());
+        }
+    }
+
+    private String getFileExtension(String cachePath) {
+        return isPath(cachePath, getHttpBodyCachePath()) ? ".json.gz" : ".json";
+    }
+
+    @Override
+    public synchronized long increment(String cachePath, String key, long delta) {
         Path filePath = Paths.get(cachePath, key + ".json");
+        try {
+            Files.createDirectories(filePath.getParent());
+            // The file lock keeps other processes sharing the cache directory from reading the same value
+            try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    FileLock lock = channel.lock()) {
+                ByteBuffer current = ByteBuffer.allocate((int) channel.size());
+                channel.read(current, 0);
+                String json = new String(current.array(), StandardCharsets.UTF_8).trim();
+                long value = (json.isEmpty() ? 0 : gson.fromJson(json, Long.class)) + delta;
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(gson.toJson(value).getBytes(StandardCharsets.UTF_8)), 0);
+                return value;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to increment file cache counter " + key, e);
+        }
+    }
+
+    @Override
+    public void invalidate(String cachePath, String key) {
+        // Pre-rendered bodies are stored under their own extension, as written by putBytes
+        Path filePath = Paths.get(cachePath, key + getFileExtension(cachePath));
         try {
             Files.deleteIfExists(filePath);
             log.info("Invalidated file cache for key: '{}'", key);
@@ -154,4 +247,67 @@ public class DiskCacheService extends CacheServiceAbs {
         }
     }
 
+    @Override
+    public void deletePath(String cachePath) {
+        Path root = Paths.get(cachePath);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            // Deepest paths first, so directories are empty when they are deleted
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.error("Failed to delete cache file '{}': {}", file, e.getMessage());
+                }
+            });
+            log.info("Deleted file cache directory '{}'", cachePath);
+        } catch (IOException e) {
+            log.error("Failed to walk cache directory '{}': {}", cachePath, e.getMessage());
+        }
+    }
+
+    @Override
+    public void forEachEntry(String cachePath, Consumer<CacheEntry> consumer) {
+        Path root = Paths.get(cachePath);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile)
+                    .filter(file -> file.getFileName().toString().endsWith(".json"))
+                    .forEach(file -> {
+                        String relativePath = root.relativize(file).toString();
+                        String key = relativePath.substring(0, relativePath.length() - ".json".length());
+                        try {
+                            consumer.accept(CacheEntry.builder()
+                                    .key(key)
+                                    .value(Files.readString(file))
+                                    .insertTime(Files.getLastModifiedTime(file).toMillis())
+                                    .build());
+                        } catch (IOException e) {
+                            log.error("Failed to read cache file '{}': {}", file, e.getMessage());
+                        }
+                    });
+        } catch (IOException e) {
+            log.error("Failed to walk cache directory '{}': {}", cachePath, e.getMessage());
+        }
+    }
+
+    @Override
+    public void putAll(String cachePath, List<CacheEntry> entries) {
+        for (CacheEntry entry : entries) {
+            Path filePath = Paths.get(cachePath, entry.getKey() + ".json");
+            try {
+                Files.createDirectories(filePath.getParent());
+                Files.writeString(filePath, entry.getValue());
+                // The file's modification time is the entry's insert time
+                Files.setLastModifiedTime(filePath, FileTime.fromMillis(entry.getInsertTime()));
+            } catch (IOException e) {
+                log.error("Failed to write file cache for key '{}': {}", entry.getKey(), e.getMessage());
+            }
+        }
+        log.debug("Bulk loaded {} entries into file cache '{}'", entries.size(), cachePath);
+    }
 }
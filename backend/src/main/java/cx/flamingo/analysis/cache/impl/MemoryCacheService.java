@@ -0,0 +1,277 @@
+package cx.flamingo.analysis.cache.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import cx.flamingo.analysis.cache.CacheServiceAbs;
+import cx.flamingo.analysis.cache.model.CacheEntry;
+import cx.flamingo.analysis.cache.model.CacheStats;
+import cx.flamingo.analysis.cache.model.Expiration;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process cache for local development and single-instance installs. Entries are weighed
+ * by their size and evicted by Caffeine's W-TinyLFU policy once cache.memory.max.bytes is
+ * reached, and expire like Redis entries. Use a cache snapshot to keep them across restarts.
+ */
+@Slf4j
+@Service("memoryCache")
+public class MemoryCacheService extends CacheServiceAbs {
+
+    // Approximate per-entry overhead of the map, the key object and the entry record
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    /**
+     * A cached value, either JSON or raw bytes
+     */
+    private record MemoryEntry(String json, byte[] bytes, long insertTime, long computeTimeMs, long expiresAt) {
+
+        int weight(String key) {
+            int valueSize = json != null ? json.length() * 2 : bytes.length;
+            return ENTRY_OVERHEAD_BYTES + key.length() * 2 + valueSize;
+        }
+    }
+
+    @Value("${cache.memory.max.bytes:268435456}")
+    private long maxBytes;
+
+    private Cache<String, MemoryEntry> cache;
+
+    public MemoryCacheService(Gson gson) {
+        super(gson);
+    }
+
+    @PostConstruct
+    private void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, MemoryEntry entry) -> entry.weight(key))
+                .expireAfter(new Expiry<String, MemoryEntry>() {
+                    @Override
+                    public long expireAfterCreate(String key, MemoryEntry entry, long currentTime) {
+                        return remainingNanos(entry);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, MemoryEntry entry, long currentTime,
+                            long currentDuration) {
+                        return remainingNanos(entry);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, MemoryEntry entry, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        log.info("In-memory cache initialized with a limit of {} MB", maxBytes / (1024 * 1024));
+    }
+
+    private static long remainingNanos(MemoryEntry entry) {
+        if (entry.expiresAt() == 0) {
+            return Long.MAX_VALUE;
+        }
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, entry.expiresAt() - System.currentTimeMillis()));
+    }
+
+    @Override
+    public String getDelimiter() {
+        return ":";
+    }
+
+    @Override
+    protected String getGithubCachePath() {
+        return "github";
+    }
+
+    @Override
+    protected String getHttpCachePath() {
+        return "http";
+    }
+
+    @Override
+    protected String getLeaderboardCachePath() {
+        return "leaderboard";
+    }
+
+    @Override
+    protected String getHttpBodyCachePath() {
+        return "http_body";
+    }
+
+    @Override
+    protected String getTombstoneCachePath() {
+        return "tombstone";
+    }
+
+    private String buildMemoryKey(String cachePath, String key) {
+        return cachePath + getDelimiter() + key;
+    }
+
+    @Override
+    protected Long getInsertTime(String cachePath, String key) {
+        MemoryEntry entry = cache.getIfPresent(buildMemoryKey(cachePath, key));
+        return entry != null ? entry.insertTime() : null;
+    }
+
+    @Override
+    protected Expiration getExpiration(String cachePath, String key) {
+        MemoryEntry entry = cache.getIfPresent(buildMemoryKey(cachePath, key));
+        if (entry == null) {
+            return null;
+        }
+        return Expiration.builder()
+                .timestamp(entry.insertTime())
+                .computeTimeMs(entry.computeTimeMs())
+                .build();
+    }
+
+    @Override
+    public <T> Optional<T> get(String cachePath, String key, TypeToken<T> typeRef, Long refreshInterval) {
+        String memoryKey = buildMemoryKey(cachePath, key);
+        MemoryEntry entry = cache.getIfPresent(memoryKey);
+        if (entry == null || entry.json() == null) {
+            return Optional.empty();
+        }
+        try {
+            log.debug("Memory cache hit for key: '{}'", memoryKey);
+            return Optional.of(gson.fromJson(entry.json(), typeRef));
+        } catch (Exception e) {
+            log.error("Failed to deserialize memory cache value for key '{}': {}", memoryKey, e.getMessage());
+            invalidate(cachePath, key);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public <T> void put(String cachePath, String key, T value) {
+        put(cachePath, key, value, 0);
+    }
+
+    @Override
+    protected <T> void put(String cachePath, String key, T value, long computeTimeMs) {
+        if (value == null) {
+            log.warn("Attempted to cache null value for key: '{}'", key);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        cache.put(buildMemoryKey(cachePath, key), new MemoryEntry(gson.toJson(value), null, now, computeTimeMs,
+                expiresAt(cachePath, now)));
+    }
+
+    @Override
+    public Optional<byte[]> getBytes(String cachePath, String key) {
+        MemoryEntry entry = cache.getIfPresent(buildMemoryKey(cachePath, key));
+        if (entry == null) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.bytes() != null ? entry.bytes() : entry.json().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void putBytes(String cachePath, String key, byte[] value) {
+        long now = System.currentTimeMillis();
+        cache.put(buildMemoryKey(cachePath, key), new MemoryEntry(null, value, now, 0, expiresAt(cachePath, now)));
+    }
+
+    @Override
+    public long increment(String cachePath, String key, long delta) {
+        long now = System.currentTimeMillis();
+        MemoryEntry entry = cache.asMap().compute(buildMemoryKey(cachePath, key), (memoryKey, current) -> {
+            long value = (current != null && current.json() != null ? gson.fromJson(current.json(), Long.class) : 0)
+                    + delta;
+            return new MemoryEntry(gson.toJson(value), null, now, 0, expiresAt(cachePath, now));
+        });
+        return gson.fromJson(entry.json(), Long.class);
+    }
+
+    @Override
+    public void invalidate(String cachePath, String key) {
+        cache.invalidate(buildMemoryKey(cachePath, key));
+    }
+
+    @Override
+    public void deletePath(String cachePath) {
+        String prefix = buildMemoryKey(cachePath, "");
+        cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        log.info("Deleted memory cache path '{}'", cachePath);
+    }
+
+    @Override
+    public void forEachEntry(String cachePath, Consumer<CacheEntry> consumer) {
+        String prefix = buildMemoryKey(cachePath, "");
+        cache.asMap().forEach((key, entry) -> {
+            if (key.startsWith(prefix) && entry.json() != null) {
+                consumer.accept(CacheEntry.builder()
+                        .key(key.substring(prefix.length()))
+                        .value(entry.json())
+                        .insertTime(entry.insertTime())
+                        .computeTimeMs(entry.computeTimeMs())
+                        .build());
+            }
+        });
+    }
+
+    @Override
+    public void putAll(String cachePath, List<CacheEntry> entries) {
+        long now = System.currentTimeMillis();
+        for (CacheEntry entry : entries) {
+            // Entries keep the TTL they had left
+            long expiresAt = expiresAt(cachePath, entry.getInsertTime());
+            if (expiresAt != 0 && expiresAt <= now) {
+                continue;
+            }
+            cache.put(buildMemoryKey(cachePath, entry.getKey()),
+                    new MemoryEntry(entry.getValue(), null, entry.getInsertTime(), entry.getComputeTimeMs(),
+                            expiresAt));
+        }
+        log.debug("Bulk loaded {} entries into memory cache path '{}'", entries.size(), cachePath);
+    }
+
+    private long expiresAt(String cachePath, long insertTime) {
+        Duration ttl = getTtl(cachePath);
+        return ttl != null ? insertTime + ttl.toMillis() : 0;
+    }
+
+    /**
+     * Nothing to reconcile in memory, expired entries are removed by the cache itself.
+     * Only reports key counts and sizes.
+     */
+    @Override
+    public Map<String, CacheStats> compact() {
+        cache.cleanUp();
+        Map<String, CacheStats> stats = new HashMap<>();
+        cache.asMap().forEach((key, entry) -> {
+            String cachePath = key.substring(0, Math.max(0, key.indexOf(getDelimiter())));
+            if (getTtl(cachePath) == null) {
+                return;
+            }
+            stats.computeIfAbsent(basePath(cachePath), path -> new CacheStats()).addKey(entry.weight(key));
+        });
+        return stats;
+    }
+
+    @Override
+    public Long getUsedMemoryBytes() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(null);
+    }
+}
@@ -1,41 +1,106 @@
 package cx.flamingo.analysis.cache.impl;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 
+import cx.flamingo.analysis.cache.model.CacheEntry;
+import cx.flamingo.analysis.cache.model.CacheStats;
+import cx.flamingo.analysis.cache.model.Leaderboard;
+import cx.flamingo.analysis.cache.model.Tombstone;
 import cx.flamingo.analysis.model.City;
 import cx.flamingo.analysis.model.Contributor;
+import cx.flamingo.analysis.model.Deadline;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
 
 @Slf4j
 @Service("readOnlyCache")
 public class ReadOnlyCacheService extends RedisCacheService {
 
-    public ReadOnlyCacheService(Gson gson, RedisTemplate<String, Object> redisTemplate) {
-        super(gson, redisTemplate);
+    public ReadOnlyCacheService(Gson gson, RedisTemplate<String, Object> redisTemplate,
+            RedisMessageListenerContainer listenerContainer, ReactiveStringRedisTemplate reactiveRedisTemplate) {
+        super(gson, redisTemplate, listenerContainer, reactiveRedisTemplate);
         log.info("Initializing read-only cache service for web profile");
     }
 
+    @Override
+    protected boolean writesArchive() {
+        // Only the writing cache service of this instance opens the GitHub page archive
+        return false;
+    }
+
     @Override
     public <T> void put(String cachePath, String key, T value) {
         // Silently ignore writes in read-only mode
         log.trace("Ignoring put operation in read-only mode for key: '{}'", key);
     }
 
+    @Override
+    protected <T> void put(String cachePath, String key, T value, long computeTimeMs) {
+        // Silently ignore writes in read-only mode
+        log.trace("Ignoring put operation in read-only mode for key: '{}'", key);
+    }
+
+    @Override
+    public void putBytes(String cachePath, String key, byte[] value) {
+        // Silently ignore writes in read-only mode
+        log.trace("Ignoring bytes put operation in read-only mode for key: '{}'", key);
+    }
+
+    @Override
+    public Optional<byte[]> getHttpResponseBody(String cityId, String regionId, String stateId, String teamId,
+                                                String languageId, int maxResults) {
+        // Always return the stored body regardless of its age
+        if (!httpBodyMaxResults.contains(maxResults)) {
+            return Optional.empty();
+        }
+        return getBytes(readPath(getHttpBodyCachePath()), generateHttpBodyCacheKey(
+                generateCacheKey(cityId, regionId, stateId, teamId, languageId), maxResults));
+    }
+
+    @Override
+    public long increment(String cachePath, String key, long delta) {
+        // Nothing is written in read-only mode, so no counter is ever handed out
+        log.trace("Ignoring increment operation in read-only mode for key: '{}'", key);
+        return 0;
+    }
+
     @Override
     public void invalidate(String cachePath, String key) {
         // Silently ignore invalidation in read-only mode
         log.trace("Ignoring invalidate operation in read-only mode for key: '{}'", key);
     }
 
+    @Override
+    public void putAll(String cachePath, List<CacheEntry> entries) {
+        // Silently ignore writes in read-only mode
+        log.trace("Ignoring bulk put of {} entries in read-only mode", entries.size());
+    }
+
+    @Override
+    public void deletePath(String cachePath) {
+        // Silently ignore deletes in read-only mode
+        log.trace("Ignoring delete of cache path '{}' in read-only mode", cachePath);
+    }
+
+    @Override
+    public Map<String, CacheStats> compact() {
+        // Compaction deletes keys, which is left to the writer
+        return Map.of();
+    }
+
     @Override
     public <T> Optional<T> get(String cachePath, String key, TypeToken<T> typeRef, Long refreshInterval) {
         // Always return cached value regardless of refresh interval
@@ -73,6 +138,13 @@ public class ReadOnlyCacheService extends RedisCacheService {
                      city.getId(), language, pageNumber);
             return cachedResponse;
         }
+
+        Optional<Tombstone> tombstone = getTombstone(cacheKey);
+        if (tombstone.isPresent()) {
+            log.debug("Read-only negative cache hit for GitHub API response - city: {}, language: {}, page: {}",
+                    city.getId(), language, pageNumber);
+            return replayTombstone(tombstone.get(), new TypeToken<JsonObject>() {});
+        }
         
         log.debug("Read-only cache miss for GitHub API response - city: {}, language: {}, page: {}", 
                  city.getId(), language, pageNumber);
@@ -80,14 +152,30 @@ public class ReadOnlyCacheService extends RedisCacheService {
     }
 
     @Override
-    public Optional<List<Contributor>> getHttpResponse(String cityId, String regionId, String stateId, 
-                                                     String teamId, String languageId, int maxResults, 
-                                                     Supplier<List<Contributor>> supplier) {
-        String cacheKey = generateCacheKey(cityId, regionId, stateId, teamId, languageId, maxResults);
-        Optional<List<Contributor>> cachedResponse = get(getHttpCachePath(), cacheKey, 
-                new TypeToken<List<Contributor>>() {}, httpRefreshIntervalMs);
+    public Optional<Leaderboard> getCityLeaderboard(City city, String languageId, int maxResults,
+                                                  IntFunction<List<Contributor>> supplier, Deadline deadline) {
+        String cacheKey = generateLeaderboardCacheKey(city.getId(), languageId);
+        Optional<Leaderboard> cachedResponse = get(readPath(getLeaderboardCachePath()), cacheKey,
+                new TypeToken<Leaderboard>() {}, githubRefreshIntervalMs);
+
+        if (cachedResponse.isPresent() && cachedResponse.get().covers(maxResults)) {
+            log.debug("Read-only cache hit for leaderboard - city: {}, language: {}", city.getId(), languageId);
+            return cachedResponse;
+        }
+
+        log.debug("Read-only cache miss for leaderboard - city: {}, language: {}", city.getId(), languageId);
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Leaderboard> getHttpRanking(String cityId, String regionId, String stateId, 
+                                                String teamId, String languageId, int maxResults, 
+                                                IntFunction<List<Contributor>> supplier, Deadline deadline) {
+        String cacheKey = generateCacheKey(cityId, regionId, stateId, teamId, languageId);
+        Optional<Leaderboard> cachedResponse = get(readPath(getHttpCachePath()), cacheKey, 
+                new TypeToken<Leaderboard>() {}, httpRefreshIntervalMs);
         
-        if (cachedResponse.isPresent()) {
+        if (cachedResponse.isPresent() && cachedResponse.get().covers(maxResults)) {
             log.debug("Read-only cache hit for query: city={}, region={}, state={}, team={}, language={}, maxResults={}", 
                      cityId, regionId, stateId, teamId, languageId, maxResults);
             return cachedResponse;
@@ -97,4 +185,17 @@ public class ReadOnlyCacheService extends RedisCacheService {
                  cityId, regionId, stateId, teamId, languageId, maxResults);
         return Optional.empty();
     }
-} 
\ No newline at end of file
+
+    @Override
+    public Mono<Leaderboard> getHttpRankingReactive(String cityId, String regionId, String stateId,
+                                                    String teamId, String languageId, int maxResults,
+                                                    IntFunction<List<Contributor>> supplier, Deadline deadline) {
+        // Never refreshes or computes, like getHttpRanking
+        String cacheKey = generateCacheKey(cityId, regionId, stateId, teamId, languageId);
+        return getReadGenerationReactive()
+                .flatMap(generation -> getReactive(generationPath(getHttpCachePath(), generation), cacheKey,
+                        new TypeToken<Leaderboard>() {}))
+                .map(CachedValue::value)
+                .filter(ranking -> ranking.covers(maxResults));
+    }
+}
@@ -1,17 +1,57 @@
 package cx.flamingo.analysis.cache.impl;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import org.springframework.beans.factory.annotation.Value;
+
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 import cx.flamingo.analysis.cache.CacheServiceAbs;
+import cx.flamingo.analysis.cache.model.CacheEntry;
+import cx.flamingo.analysis.cache.model.CacheStats;
 import cx.flamingo.analysis.cache.model.Expiration;
+import cx.flamingo.analysis.model.Deadline;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
 
 @Slf4j
 @Service("redisCache")
@@ -20,12 +60,149 @@ public class RedisCacheService extends CacheServiceAbs {
     private final RedisTemplate<String, Object> redisTemplate;
     protected final ValueOperations<String, Object> valueOps;
     private static final String EXPIRATION_SUFFIX = ":expiration";
+    private static final int SCAN_BATCH_SIZE = 500;
+    private static final String ARCHIVE_STATS_SUFFIX = "_archive";
+
+    // A value and its metadata are written one after the other, so a key is only removed
+    // once it has been seen without its sibling in two consecutive compactions
+    private Set<String> suspectedOrphans = new HashSet<>();
+
+    private static final String LEASE_PREFIX = "lease:";
+    private static final String LEASE_FENCE_KEY = "lease_fence";
+    private static final String LEASE_CHANNEL = "cache_lease_released";
+    private static final String LEASE_FENCE_SUFFIX = ":fence";
+
+    // Writes the value and its metadata unless another holder has the lease, or a newer token
+    // already wrote the key, then releases the lease and announces it. An expired lease alone
+    // doesn't discard the value.
+    private static final RedisScript<Long> FENCED_PUT_SCRIPT = new DefaultRedisScript<>("""
+            local holder = redis.call('GET', KEYS[1])
+            if holder and holder ~= ARGV[1] then
+                return 0
+            end
+            local fence = redis.call('GET', KEYS[4])
+            if fence and tonumber(fence) > tonumber(ARGV[1]) then
+                return 0
+            end
+            if ARGV[5] == '0' then
+                redis.call('SET', KEYS[2], ARGV[2])
+                redis.call('SET', KEYS[3], ARGV[3])
+                redis.call('SET', KEYS[4], ARGV[1])
+            else
+                redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[5])
+                redis.call('SET', KEYS[3], ARGV[3], 'PX', ARGV[5])
+                redis.call('SET', KEYS[4], ARGV[1], 'PX', ARGV[5])
+            end
+            if holder then
+                redis.call('DEL', KEYS[1])
+                redis.call('PUBLISH', ARGV[4], KEYS[1])
+            end
+            return 1
+            """, Long.class);
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+                return 0
+            end
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+                return 0
+            end
+            redis.call('DEL', KEYS[1])
+            redis.call('PUBLISH', ARGV[2], KEYS[1])
+            return 1
+            """, Long.class);
+
+    // Cold misses are computed by a single instance holding a lease on the key, renewed every
+    // third of cache.lease.ms while it computes. The others wait for the lease to be released,
+    // up to cache.lease.wait.ms.
+    @Value("${cache.lease.enabled:true}")
+    protected boolean leaseEnabled;
+
+    @Value("${cache.lease.ms:120000}")
+    protected long leaseMs;
+
+    @Value("${cache.lease.wait.ms:30000}")
+    protected long leaseWaitMs;
+
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final Map<String, CompletableFuture<Void>> leaseWaiters = new ConcurrentHashMap<>();
+    private volatile boolean leaseListenerRegistered;
+    private final ScheduledExecutorService leaseRenewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CacheLeaseRenewer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Raw GitHub pages are only kept in Redis for github.archive.hot.ms. Every page is also
+    // written to a local compressed segment store for its full TTL, and promoted back into
+    // Redis when read after it left the hot tier.
+    @Value("${github.archive.enabled:false}")
+    protected boolean archiveEnabled;
+
+    @Value("${github.archive.path:}")
+    protected String archivePath;
+
+    @Value("${github.archive.hot.ms:21600000}")
+    protected long archiveHotMs;
+
+    @Value("${github.archive.segment.bytes:67108864}")
+    protected long archiveSegmentBytes;
+
+    private SegmentStore archive;
+    private volatile long archivePrunedAt;
+
+    // Wrap the key in a hash tag, so a value, its metadata and its lease share a cluster slot
+    @Value("${cache.redis.hash.tags:false}")
+    protected boolean hashTags;
 
     public RedisCacheService(Gson gson,
-            RedisTemplate<String, Object> redisTemplate) {
+            RedisTemplate<String, Object> redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            ReactiveStringRedisTemplate reactiveRedisTemplate) {
         super(gson);
         this.redisTemplate = redisTemplate;
         this.valueOps = redisTemplate.opsForValue();
+        this.listenerContainer = listenerContainer;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+    }
+
+    @PostConstruct
+    private void initArchive() {
+        if (!archiveEnabled || !writesArchive()) {
+            return;
+        }
+        try {
+            archive = new SegmentStore(Path.of(archivePath), archiveSegmentBytes);
+            pruneArchive();
+        } catch (IOException e) {
+            log.error("Failed to open the GitHub page archive at '{}', pages stay in Redis: {}", archivePath,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Whether this service writes pages, and so owns the archive directory
+     */
+    protected boolean writesArchive() {
+        return true;
+    }
+
+    @PreDestroy
+    private void closeArchive() {
+        if (archive != null) {
+            archive.close();
+        }
+    }
+
+    @PreDestroy
+    private void stopLeaseRenewer() {
+        leaseRenewer.shutdownNow();
     }
 
     @Override
@@ -43,25 +220,102 @@ public class RedisCacheService extends CacheServiceAbs {
         return "http";
     }
 
+    @Override
+    protected String getLeaderboardCachePath() {
+        return "leaderboard";
+    }
+
+    @Override
+    protected String getHttpBodyCachePath() {
+        return "http_body";
+    }
+
+    @Override
+    protected String getTombstoneCachePath() {
+        return "tombstone";
+    }
+
     @Override
     protected Long getInsertTime(String cachePath, String key) {
+        Expiration expiration = getExpiration(cachePath, key);
+        return expiration != null ? expiration.getTimestamp() : null;
+    }
+
+    @Override
+    protected Expiration getExpiration(String cachePath, String key) {
         String redisKey = buildRedisKey(cachePath, key);
         Object json = valueOps.get(redisKey + EXPIRATION_SUFFIX);
-        Expiration expiration = gson.fromJson(json.toString(), Expiration.class);
-        if (expiration != null) {
-            return expiration.getTimestamp();
+        if (json == null) {
+            return null;
         }
-        return 0L;
+        Expiration expiration = gson.fromJson(json.toString(), Expiration.class);
+        return expiration != null ? expiration : Expiration.builder().build();
     }
 
     protected String buildRedisKey(String cachePath, String key) {
-        return cachePath + getDelimiter() + key;
+        return hashTags
+                ? keyPrefix(cachePath) + key + "}"
+                : keyPrefix(cachePath) + key;
+    }
+
+    /**
+     * The part shared by all Redis keys of a cache path
+     */
+    private String keyPrefix(String cachePath) {
+        return hashTags
+                ? cachePath + getDelimiter() + "{"
+                : cachePath + getDelimiter();
+    }
+
+    /**
+     * The cache key of a Redis key under the given prefix
+     */
+    private String cacheKey(String prefix, String redisKey) {
+        String key = redisKey.substring(prefix.length());
+        return hashTags && key.endsWith("}") ? key.substring(0, key.length() - 1) : key;
+    }
+
+    /**
+     * SCAN over the keys matching a pattern, in batches. A cluster is scanned one primary
+     * at a time, as SCAN only walks the node it is sent to.
+     */
+    private void scanKeys(String pattern, Consumer<List<String>> batchConsumer) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_BATCH_SIZE).build();
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            if (connection instanceof RedisClusterConnection clusterConnection) {
+                for (RedisClusterNode node : clusterConnection.clusterGetMasterReplicaMap().keySet()) {
+                    scanKeys(clusterConnection.scan(node, options), batchConsumer);
+                }
+            } else {
+                scanKeys(connection.keyCommands().scan(options), batchConsumer);
+            }
+            return null;
+        });
+    }
+
+    private static void scanKeys(Cursor<byte[]> cursor, Consumer<List<String>> batchConsumer) {
+        List<String> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+        try (cursor) {
+            while (cursor.hasNext()) {
+                batch.add(new String(cursor.next(), StandardCharsets.UTF_8));
+                if (batch.size() >= SCAN_BATCH_SIZE) {
+                    batchConsumer.accept(batch);
+                    batch = new ArrayList<>(SCAN_BATCH_SIZE);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(batch);
+        }
     }
 
     @Override
     public <T> Optional<T> get(String cachePath, String key, TypeToken<T> typeRef, Long refreshInterval) {
         String redisKey = buildRedisKey(cachePath, key);
         Object cachedValue = valueOps.get(redisKey);
+        if (cachedValue == null && isArchived(cachePath)) {
+            cachedValue = promote(cachePath, key);
+        }
 
         if (cachedValue != null) {
             try {
@@ -78,24 +332,149 @@ public class RedisCacheService extends CacheServiceAbs {
         return Optional.empty();
     }
 
+    /**
+     * The value and its metadata in one MGET through the reactive client. Both keys share
+     * the hash tag, so this also holds on a cluster.
+     */
+    @Override
+    protected <T> Mono<CachedValue<T>> getReactive(String cachePath, String key, TypeToken<T> typeRef) {
+        String redisKey = buildRedisKey(cachePath, key);
+        return reactiveRedisTemplate.opsForValue()
+                .multiGet(List.of(redisKey, redisKey + EXPIRATION_SUFFIX))
+                .flatMap(values -> {
+                    String json = values.get(0);
+                    if (json == null || json.isEmpty()) {
+                        return Mono.empty();
+                    }
+                    try {
+                        String expiration = values.get(1);
+                        return Mono.just(new CachedValue<>(gson.fromJson(json, typeRef),
+                                expiration != null && !expiration.isEmpty()
+                                        ? gson.fromJson(expiration, Expiration.class)
+                                        : null));
+                    } catch (Exception e) {
+                        log.error("Failed to deserialize Redis cache value for key '{}': {}", redisKey,
+                                e.getMessage());
+                        return Mono.empty();
+                    }
+                });
+    }
+
+    @Override
+    public <T> List<Optional<T>> getAll(String cachePath, List<String> keys, TypeToken<T> typeRef) {
+        List<String> redisKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            redisKeys.add(buildRedisKey(cachePath, key));
+        }
+
+        List<Object> cachedValues = valueOps.multiGet(redisKeys);
+        List<Optional<T>> values = new ArrayList<>(keys.size());
+        for (int i = 0; i < redisKeys.size(); i++) {
+            Object cachedValue = cachedValues != null ? cachedValues.get(i) : null;
+            if (cachedValue == null) {
+                values.add(Optional.empty());
+                continue;
+            }
+            try {
+                values.add(Optional.of(gson.fromJson(cachedValue.toString(), typeRef)));
+            } catch (Exception e) {
+                log.error("Failed to deserialize Redis cache value for key '{}': {}", redisKeys.get(i), e.getMessage());
+                values.add(Optional.empty());
+            }
+        }
+        log.debug("Redis multi-get for {} keys under '{}'", redisKeys.size(), cachePath);
+        return values;
+    }
+
     @Override
     public <T> void put(String cachePath, String key, T value) {
+        put(cachePath, key, value, 0);
+    }
+
+    @Override
+    protected <T> void put(String cachePath, String key, T value, long computeTimeMs) {
         if (value == null) {
             log.warn("Attempted to cache null value for key: '{}'", key);
             return;
         }
 
         String redisKey = buildRedisKey(cachePath, key);
+        Duration ttl = getHotTtl(cachePath);
         try {
             // Let the RedisTemplate's serializer handle the conversion
-            valueOps.set(redisKey, gson.toJson(value));
-            valueOps.set(redisKey + EXPIRATION_SUFFIX, gson.toJson(Expiration.builder().timestamp(System.currentTimeMillis())));
+            String json = gson.toJson(value);
+            long now = System.currentTimeMillis();
+            String expiration = gson.toJson(Expiration.builder()
+                    .timestamp(now)
+                    .computeTimeMs(computeTimeMs)
+                    .build());
+            if (isArchived(cachePath)) {
+                archive(List.of(CacheEntry.builder()
+                        .key(key)
+                        .value(json)
+                        .insertTime(now)
+                        .computeTimeMs(computeTimeMs)
+                        .build()));
+            }
+            if (ttl != null) {
+                valueOps.set(redisKey, json, ttl);
+                valueOps.set(redisKey + EXPIRATION_SUFFIX, expiration, ttl);
+            } else {
+                valueOps.set(redisKey, json);
+                valueOps.set(redisKey + EXPIRATION_SUFFIX, expiration);
+            }
             log.debug("Cached value in Redis for key: '{}'", redisKey);
         } catch (Exception e) {
             log.error("Failed to write to Redis cache for key '{}': {}", redisKey, e.getMessage());
         }
     }
 
+    @Override
+    public Optional<byte[]> getBytes(String cachePath, String key) {
+        byte[] redisKey = bytes(buildRedisKey(cachePath, key));
+        try {
+            // Bypass the template's serializers, the value is returned byte for byte
+            byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands()
+                    .get(redisKey));
+            return Optional.ofNullable(value);
+        } catch (Exception e) {
+            log.error("Failed to read bytes from Redis cache for key '{}': {}", buildRedisKey(cachePath, key),
+                    e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void putBytes(String cachePath, String key, byte[] value) {
+        String redisKey = buildRedisKey(cachePath, key);
+        Duration ttl = getHotTtl(cachePath);
+        byte[] expiration = bytes(gson.toJson(Expiration.builder().timestamp(System.currentTimeMillis()).build()));
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                if (ttl != null) {
+                    connection.stringCommands().pSetEx(bytes(redisKey), ttl.toMillis(), value);
+                    connection.stringCommands().pSetEx(bytes(redisKey + EXPIRATION_SUFFIX), ttl.toMillis(),
+                            expiration);
+                } else {
+                    connection.stringCommands().set(bytes(redisKey), value);
+                    connection.stringCommands().set(bytes(redisKey + EXPIRATION_SUFFIX), expiration);
+                }
+                return null;
+            });
+            log.debug("Cached {} bytes in Redis for key: '{}'", value.length, redisKey);
+        } catch (Exception e) {
+            log.error("Failed to write bytes to Redis cache for key '{}': {}", redisKey, e.getMessage());
+        }
+    }
+
+    @Override
+    public long increment(String cachePath, String key, long delta) {
+        byte[] redisKey = bytes(buildRedisKey(cachePath, key));
+        // INCRBY on the raw key, the counter is a plain integer rather than a serialized value
+        return redisTemplate.execute((RedisCallback<Long>) connection -> connection.stringCommands()
+                .incrBy(redisKey, delta));
+    }
+
     @Override
     public void invalidate(String cachePath, String key) {
         String redisKey = buildRedisKey(cachePath, key);
@@ -108,4 +487,397 @@ public class RedisCacheService extends CacheServiceAbs {
         }
     }
 
+    @Override
+    public void forEachEntry(String cachePath, Consumer<CacheEntry> consumer) {
+        String prefix = keyPrefix(cachePath);
+        scanKeys(prefix + "*", batch -> {
+            List<String> values = batch.stream()
+                    .filter(redisKey -> !redisKey.endsWith(EXPIRATION_SUFFIX))
+                    .toList();
+            if (!values.isEmpty()) {
+                readEntries(prefix, values, consumer);
+            }
+        });
+    }
+
+    private void readEntries(String prefix, List<String> redisKeys, Consumer<CacheEntry> consumer) {
+        List<String> keysWithMetadata = new ArrayList<>(redisKeys.size() * 2);
+        for (String redisKey : redisKeys) {
+            keysWithMetadata.add(redisKey);
+            keysWithMetadata.add(redisKey + EXPIRATION_SUFFIX);
+        }
+
+        List<Object> values = valueOps.multiGet(keysWithMetadata);
+        if (values == null) {
+            return;
+        }
+        for (int i = 0; i < redisKeys.size(); i++) {
+            Object value = values.get(i * 2);
+            Object expiration = values.get(i * 2 + 1);
+            if (value == null || expiration == null) {
+                // Expired or orphaned since the scan
+                continue;
+            }
+            Expiration metadata = gson.fromJson(expiration.toString(), Expiration.class);
+            consumer.accept(CacheEntry.builder()
+                    .key(cacheKey(prefix, redisKeys.get(i)))
+                    .value(value.toString())
+                    .insertTime(metadata.getTimestamp())
+                    .computeTimeMs(metadata.getComputeTimeMs())
+                    .build());
+        }
+    }
+
+    @Override
+    public void putAll(String cachePath, List<CacheEntry> entries) {
+        if (isArchived(cachePath)) {
+            archive(entries);
+        }
+        Duration ttl = getHotTtl(cachePath);
+        long now = System.currentTimeMillis();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (CacheEntry entry : entries) {
+                byte[] redisKey = bytes(buildRedisKey(cachePath, entry.getKey()));
+                byte[] value = bytes(entry.getValue());
+                byte[] expiration = bytes(gson.toJson(Expiration.builder()
+                        .timestamp(entry.getInsertTime())
+                        .computeTimeMs(entry.getComputeTimeMs())
+                        .build()));
+                if (ttl == null) {
+                    connection.stringCommands().set(redisKey, value);
+                    connection.stringCommands().set(bytes(buildRedisKey(cachePath, entry.getKey()) + EXPIRATION_SUFFIX),
+                            expiration);
+                    continue;
+                }
+                // Entries keep the TTL they had left when they were exported, archived pages
+                // that already left the hot tier are only written to the archive
+                long remainingTtl = ttl.toMillis() - (now - entry.getInsertTime());
+                if (remainingTtl <= 0) {
+                    continue;
+                }
+                connection.stringCommands().pSetEx(redisKey, remainingTtl, value);
+                connection.stringCommands().pSetEx(bytes(buildRedisKey(cachePath, entry.getKey()) + EXPIRATION_SUFFIX),
+                        remainingTtl, expiration);
+            }
+            return null;
+        });
+        log.debug("Bulk loaded {} entries into Redis cache path '{}'", entries.size(), cachePath);
+    }
+
+    @Override
+    public void deletePath(String cachePath) {
+        long[] deleted = {0};
+        try {
+            scanKeys(keyPrefix(cachePath) + "*", batch -> {
+                redisTemplate.unlink(batch);
+                deleted[0] += batch.size();
+            });
+            log.info("Deleted {} Redis keys under cache path '{}'", deleted[0], cachePath);
+        } catch (Exception e) {
+            log.error("Failed to delete Redis cache path '{}': {}", cachePath, e.getMessage());
+        }
+    }
+
+    private boolean isArchived(String cachePath) {
+        return archive != null && getGithubCachePath().equals(cachePath);
+    }
+
+    /**
+     * TTL of a key in Redis, shortened to the hot window for archived pages
+     */
+    private Duration getHotTtl(String cachePath) {
+        Duration ttl = getTtl(cachePath);
+        if (ttl == null || !isArchived(cachePath)) {
+            return ttl;
+        }
+        return ttl.toMillis() > archiveHotMs ? Duration.ofMillis(archiveHotMs) : ttl;
+    }
+
+    private void archive(List<CacheEntry> entries) {
+        try {
+            archive.append(entries);
+        } catch (IOException e) {
+            log.error("Failed to archive {} GitHub pages: {}", entries.size(), e.getMessage());
+        }
+        if (System.currentTimeMillis() - archivePrunedAt > archiveHotMs) {
+            pruneArchive();
+        }
+    }
+
+    private void pruneArchive() {
+        archivePrunedAt = System.currentTimeMillis();
+        int removed = archive.removeInsertedBefore(archivePrunedAt - getTtl(getGithubCachePath()).toMillis());
+        if (removed > 0) {
+            log.info("Removed {} expired segments from the GitHub page archive", removed);
+        }
+    }
+
+    /**
+     * Reads a page from the archive and writes it back to Redis for another hot window,
+     * keeping its original insert time so it is refreshed on schedule
+     */
+    private String promote(String cachePath, String key) {
+        Optional<CacheEntry> archived = archive.get(key);
+        if (archived.isEmpty()) {
+            return null;
+        }
+        CacheEntry entry = archived.get();
+        long remainingTtl = getTtl(cachePath).toMillis() - (System.currentTimeMillis() - entry.getInsertTime());
+        if (remainingTtl <= 0) {
+            return null;
+        }
+
+        String redisKey = buildRedisKey(cachePath, key);
+        long hotTtl = Math.min(remainingTtl, archiveHotMs);
+        byte[] expiration = bytes(gson.toJson(Expiration.builder()
+                .timestamp(entry.getInsertTime())
+                .computeTimeMs(entry.getComputeTimeMs())
+                .build()));
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.stringCommands().pSetEx(bytes(redisKey), hotTtl, bytes(entry.getValue()));
+                connection.stringCommands().pSetEx(bytes(redisKey + EXPIRATION_SUFFIX), hotTtl, expiration);
+                return null;
+            });
+            log.debug("Promoted archived GitHub page into Redis for key: '{}'", redisKey);
+        } catch (Exception e) {
+            log.error("Failed to promote archived page for key '{}': {}", redisKey, e.getMessage());
+        }
+        return entry.getValue();
+    }
+
+    /**
+     * Single-flight across instances: the instance that gets the lease computes the entry and
+     * writes it fenced by its token, so a holder whose lease expired can't overwrite a newer
+     * holder's lease or value. The lease is renewed for as long as the compute runs. Other
+     * instances wait for the release, then read the entry.
+     */
+    @Override
+    protected <T> Optional<T> computeMissing(Supplier<T> supplier, String cachePath, String cacheKey,
+            TypeToken<T> typeRef, Optional<T> fallback, Deadline deadline) {
+        if (!leaseEnabled || forceCacheUpdate()) {
+            return super.computeMissing(supplier, cachePath, cacheKey, typeRef, fallback, deadline);
+        }
+
+        String redisKey = buildRedisKey(cachePath, cacheKey);
+        String leaseKey = LEASE_PREFIX + redisKey;
+        String token;
+        try {
+            token = String.valueOf(valueOps.increment(LEASE_FENCE_KEY));
+            if (!Boolean.TRUE.equals(valueOps.setIfAbsent(leaseKey, token, Duration.ofMillis(leaseMs)))) {
+                log.info("Another instance is computing key: '{}', waiting for it", redisKey);
+                return awaitLease(supplier, cachePath, cacheKey, typeRef, fallback, deadline);
+            }
+        } catch (Exception e) {
+            log.error("Failed to acquire compute lease for key '{}': {}", redisKey, e.getMessage());
+            return super.computeMissing(supplier, cachePath, cacheKey, typeRef, fallback, deadline);
+        }
+
+        T value;
+        long startTime = System.currentTimeMillis();
+        ScheduledFuture<?> renewal = scheduleLeaseRenewal(leaseKey, token);
+        try {
+            value = supplier.get();
+        } catch (Exception e) {
+            log.error("Error fetching data: {}", e.getMessage());
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey), token, LEASE_CHANNEL);
+            return Optional.empty();
+        } finally {
+            renewal.cancel(false);
+        }
+
+        Duration ttl = getHotTtl(cachePath);
+        String expiration = gson.toJson(Expiration.builder()
+                .timestamp(System.currentTimeMillis())
+                .computeTimeMs(System.currentTimeMillis() - startTime)
+                .build());
+        try {
+            Long written = redisTemplate.execute(FENCED_PUT_SCRIPT,
+                    List.of(leaseKey, redisKey, redisKey + EXPIRATION_SUFFIX, leaseKey + LEASE_FENCE_SUFFIX),
+                    token, gson.toJson(value), expiration, LEASE_CHANNEL,
+                    String.valueOf(ttl != null ? ttl.toMillis() : 0));
+            if (!Long.valueOf(1).equals(written)) {
+                log.warn("Compute lease on key '{}' was taken over by another instance, discarding its value",
+                        redisKey);
+            }
+        } catch (Exception e) {
+            log.error("Failed to write to Redis cache for key '{}': {}", redisKey, e.getMessage());
+        }
+        return Optional.of(value);
+    }
+
+    private ScheduledFuture<?> scheduleLeaseRenewal(String leaseKey, String token) {
+        long period = Math.max(1, leaseMs / 3);
+        return leaseRenewer.scheduleAtFixedRate(() -> {
+            try {
+                Long renewed = redisTemplate.execute(RENEW_SCRIPT, List.of(leaseKey), token, String.valueOf(leaseMs));
+                if (!Long.valueOf(1).equals(renewed)) {
+                    log.warn("Lost the compute lease on key: '{}'", leaseKey);
+                }
+            } catch (Exception e) {
+                log.error("Failed to renew the compute lease on key '{}': {}", leaseKey, e.getMessage());
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Waits for the lease holder's value, up to cache.lease.wait.ms and no longer than the deadline
+     */
+    private <T> Optional<T> awaitLease(Supplier<T> supplier, String cachePath, String cacheKey,
+            TypeToken<T> typeRef, Optional<T> fallback, Deadline deadline) {
+        String leaseKey = LEASE_PREFIX + buildRedisKey(cachePath, cacheKey);
+        registerLeaseListener();
+        CompletableFuture<Void> released = leaseWaiters.computeIfAbsent(leaseKey, key -> new CompletableFuture<>());
+        try {
+            // The lease may have been released before we started listening
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(leaseKey))) {
+                released.get(Math.min(leaseWaitMs, deadline.remainingMs()), TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException e) {
+            leaseWaiters.remove(leaseKey, released);
+            log.warn("Timed out waiting for the compute lease on key: '{}'", leaseKey);
+            return fallback;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback;
+        } catch (ExecutionException e) {
+            log.error("Error waiting for the compute lease on key '{}': {}", leaseKey, e.getMessage());
+        }
+
+        Optional<T> value = get(cachePath, cacheKey, typeRef, null);
+        if (value.isPresent() || fallback.isPresent()) {
+            return value.or(() -> fallback);
+        }
+        // The lease holder failed or its lease expired
+        log.info("No value for key: '{}' after its compute lease was released, computing it", cacheKey);
+        return super.computeMissing(supplier, cachePath, cacheKey, typeRef, fallback, deadline);
+    }
+
+    private void registerLeaseListener() {
+        if (leaseListenerRegistered) {
+            return;
+        }
+        synchronized (this) {
+            if (!leaseListenerRegistered) {
+                listenerContainer.addMessageListener((message, pattern) -> {
+                    String leaseKey = new String(message.getBody(), StandardCharsets.UTF_8);
+                    CompletableFuture<Void> released = leaseWaiters.remove(leaseKey);
+                    if (released != null) {
+                        released.complete(null);
+                    }
+                }, new ChannelTopic(LEASE_CHANNEL));
+                leaseListenerRegistered = true;
+            }
+        }
+    }
+
+    /**
+     * Walks the key space with SCAN and removes values without metadata and metadata
+     * without values. Keys written before TTLs were introduced get their TTL applied.
+     */
+    @Override
+    public Map<String, CacheStats> compact() {
+        Map<String, CacheStats> stats = new HashMap<>();
+        Set<String> orphans = new HashSet<>();
+        try {
+            scanKeys("*", batch -> compactBatch(batch, stats, orphans));
+        } catch (Exception e) {
+            log.error("Failed to compact Redis cache: {}", e.getMessage());
+        }
+        suspectedOrphans = orphans;
+
+        if (archive != null) {
+            pruneArchive();
+            CacheStats archiveStats = new CacheStats();
+            archiveStats.setKeys(archive.size());
+            archiveStats.setBytes(archive.sizeBytes());
+            stats.put(getGithubCachePath() + ARCHIVE_STATS_SUFFIX, archiveStats);
+        }
+
+        stats.forEach((cachePath, pathStats) -> log.info("Redis cache path '{}': {} keys, {} bytes, {} orphans removed",
+                cachePath, pathStats.getKeys(), pathStats.getBytes(), pathStats.getOrphansRemoved()));
+        return stats;
+    }
+
+    private void compactBatch(List<String> keys, Map<String, CacheStats> stats, Set<String> orphans) {
+        // For every key: does its sibling exist, what is its TTL and how large is it
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.keyCommands().exists(bytes(siblingKey(key)));
+                connection.keyCommands().pTtl(bytes(key));
+                connection.stringCommands().strLen(bytes(key));
+            }
+            return null;
+        });
+
+        List<String> orphansToRemove = new ArrayList<>();
+        Map<String, Duration> missingTtls = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            String cachePath = key.substring(0, Math.max(0, key.indexOf(getDelimiter())));
+            Duration ttl = getHotTtl(cachePath);
+            if (ttl == null) {
+                // Not a managed cache path
+                continue;
+            }
+
+            boolean siblingExists = Boolean.TRUE.equals(results.get(i * 3));
+            Long pttl = (Long) results.get(i * 3 + 1);
+            Long size = (Long) results.get(i * 3 + 2);
+            // All generations of a path are reported together
+            CacheStats pathStats = stats.computeIfAbsent(basePath(cachePath), path -> new CacheStats());
+
+            if (!siblingExists) {
+                if (suspectedOrphans.contains(key)) {
+                    orphansToRemove.add(key);
+                    pathStats.addOrphanRemoved();
+                } else {
+                    orphans.add(key);
+                }
+                continue;
+            }
+            if (pttl != null && pttl == -1) {
+                missingTtls.put(key, ttl);
+            }
+            pathStats.addKey(size != null ? size : 0);
+        }
+
+        if (!orphansToRemove.isEmpty()) {
+            redisTemplate.delete(orphansToRemove);
+            log.debug("Removed {} orphaned Redis cache keys", orphansToRemove.size());
+        }
+        if (!missingTtls.isEmpty()) {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                missingTtls.forEach((key, ttl) -> connection.keyCommands().pExpire(bytes(key), ttl.toMillis()));
+                return null;
+            });
+            log.debug("Applied TTL to {} Redis cache keys", missingTtls.size());
+        }
+    }
+
+    @Override
+    public Long getUsedMemoryBytes() {
+        try {
+            Properties info = redisTemplate.execute((RedisCallback<Properties>) connection -> serverInfo(connection));
+            String usedMemory = info != null ? info.getProperty("used_memory") : null;
+            return usedMemory != null ? Long.parseLong(usedMemory) : null;
+        } catch (Exception e) {
+            log.error("Failed to read Redis memory usage: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Properties serverInfo(RedisConnection connection) {
+        return connection.serverCommands().info("memory");
+    }
+
+    private String siblingKey(String key) {
+        return key.endsWith(EXPIRATION_SUFFIX)
+                ? key.substring(0, key.length() - EXPIRATION_SUFFIX.length())
+                : key + EXPIRATION_SUFFIX;
+    }
+
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
 }
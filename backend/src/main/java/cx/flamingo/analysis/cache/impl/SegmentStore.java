@@ -0,0 +1,298 @@
+package cx.flamingo.analysis.cache.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import cx.flamingo.analysis.cache.model.CacheEntry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only store of compressed cache entries on local disk. Entries are appended to
+ * segment files of bounded size and found through an in-memory index, rebuilt from the
+ * segments at startup. Whole segments are dropped once all their entries have expired.
+ *
+ * Record layout: record length, key, insert time, compute time, value length, deflated
+ * value length, deflated value. A later record for the same key replaces the earlier one.
+ * Appends are not synced until close, a record torn by a crash is skipped on load.
+ */
+@Slf4j
+public class SegmentStore {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private record Location(int segment, long offset, int length) {
+    }
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    // Newest insert time in each segment, a segment expires with its newest entry
+    private final Map<Integer, Long> segmentNewestInsertTime = new ConcurrentHashMap<>();
+    private final Map<Integer, FileChannel> readers = new ConcurrentHashMap<>();
+
+    private int activeSegment;
+    private FileChannel writer;
+
+    public SegmentStore(Path directory, long maxSegmentBytes) throws IOException {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    /**
+     * Rebuild the index from the existing segments. Writes always start a new segment,
+     * so a record left incomplete by a crash is never appended to.
+     */
+    private void load() throws IOException {
+        int lastSegment = 0;
+        for (int segment : listSegments()) {
+            loadSegment(segment);
+            lastSegment = Math.max(lastSegment, segment);
+        }
+        activeSegment = lastSegment + 1;
+        log.info("Segment store at {} loaded with {} entries in {} segments", directory, index.size(),
+                segmentNewestInsertTime.size());
+    }
+
+    private void loadSegment(int segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            long offset = 0;
+            long size = channel.size();
+            ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+            while (offset + Integer.BYTES <= size) {
+                lengthBuffer.clear();
+                channel.read(lengthBuffer, offset);
+                int length = lengthBuffer.flip().getInt();
+                if (length <= 0 || offset + Integer.BYTES + length > size) {
+                    log.warn("Truncated record in segment {} at offset {}, ignoring the rest", segment, offset);
+                    break;
+                }
+                Optional<CacheEntry> entry = readRecord(channel, offset + Integer.BYTES, length);
+                if (entry.isEmpty()) {
+                    break;
+                }
+                index.put(entry.get().getKey(), new Location(segment, offset + Integer.BYTES, length));
+                segmentNewestInsertTime.merge(segment, entry.get().getInsertTime(), Math::max);
+                offset += Integer.BYTES + length;
+            }
+        }
+    }
+
+    public Optional<CacheEntry> get(String key) {
+        Location location = index.get(key);
+        if (location == null) {
+            return Optional.empty();
+        }
+        try {
+            return readRecord(getReader(location.segment()), location.offset(), location.length());
+        } catch (IOException e) {
+            // The segment was dropped since the lookup
+            log.debug("Failed to read segment {} for key '{}': {}", location.segment(), key, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public synchronized void append(List<CacheEntry> entries) throws IOException {
+        for (CacheEntry entry : entries) {
+            byte[] record = encode(entry);
+            FileChannel channel = getWriter();
+            long offset = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + record.length);
+            buffer.putInt(record.length).put(record).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            index.put(entry.getKey(), new Location(activeSegment, offset + Integer.BYTES, record.length));
+            segmentNewestInsertTime.merge(activeSegment, entry.getInsertTime(), Math::max);
+        }
+    }
+
+    /**
+     * Drop the segments whose newest entry was inserted before the given time
+     */
+    public synchronized int removeInsertedBefore(long insertTime) {
+        List<Integer> expired = segmentNewestInsertTime.entrySet().stream()
+                .filter(segment -> segment.getValue() < insertTime && segment.getKey() != activeSegment)
+                .map(Map.Entry::getKey)
+                .toList();
+        for (int segment : expired) {
+            index.values().removeIf(location -> location.segment() == segment);
+            segmentNewestInsertTime.remove(segment);
+            closeQuietly(readers.remove(segment));
+            try {
+                Files.deleteIfExists(segmentPath(segment));
+            } catch (IOException e) {
+                log.error("Failed to delete segment {}: {}", segment, e.getMessage());
+            }
+        }
+        return expired.size();
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public long sizeBytes() {
+        long bytes = 0;
+        for (int segment : segmentNewestInsertTime.keySet()) {
+            try {
+                bytes += Files.size(segmentPath(segment));
+            } catch (IOException e) {
+                // Dropped concurrently
+            }
+        }
+        return bytes;
+    }
+
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.force(false);
+            } catch (IOException e) {
+                log.error("Failed to sync segment {}: {}", activeSegment, e.getMessage());
+            }
+        }
+        closeQuietly(writer);
+        readers.values().forEach(SegmentStore::closeQuietly);
+        readers.clear();
+    }
+
+    private FileChannel getWriter() throws IOException {
+        if (writer != null && writer.size() >= maxSegmentBytes) {
+            writer.close();
+            writer = null;
+            activeSegment++;
+        }
+        if (writer == null) {
+            writer = FileChannel.open(segmentPath(activeSegment), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        }
+        return writer;
+    }
+
+    private FileChannel getReader(int segment) throws IOException {
+        FileChannel reader = readers.get(segment);
+        if (reader == null) {
+            reader = FileChannel.open(segmentPath(segment), StandardOpenOption.READ);
+            FileChannel existing = readers.putIfAbsent(segment, reader);
+            if (existing != null) {
+                reader.close();
+                reader = existing;
+            }
+        }
+        return reader;
+    }
+
+    private static byte[] encode(CacheEntry entry) throws IOException {
+        byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(value);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(value.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+
+            ByteArrayOutputStream record = new ByteArrayOutputStream(compressed.size() + 128);
+            DataOutputStream out = new DataOutputStream(record);
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getInsertTime());
+            out.writeLong(entry.getComputeTimeMs());
+            out.writeInt(value.length);
+            out.writeInt(compressed.size());
+            compressed.writeTo(out);
+            return record.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static Optional<CacheEntry> readRecord(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Record extends past the end of its segment");
+            }
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+        String key = in.readUTF();
+        long insertTime = in.readLong();
+        long computeTimeMs = in.readLong();
+        byte[] value = new byte[in.readInt()];
+        byte[] compressed = new byte[in.readInt()];
+        in.readFully(compressed);
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int inflated = inflater.inflate(value);
+            if (inflated != value.length) {
+                log.warn("Corrupted record for key '{}' in segment store", key);
+                return Optional.empty();
+            }
+        } catch (DataFormatException e) {
+            log.warn("Corrupted record for key '{}' in segment store: {}", key, e.getMessage());
+            return Optional.empty();
+        } finally {
+            inflater.end();
+        }
+
+        return Optional.of(CacheEntry.builder()
+                .key(key)
+                .value(new String(value, StandardCharsets.UTF_8))
+                .insertTime(insertTime)
+                .computeTimeMs(computeTimeMs)
+                .build());
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> segments.add(Integer.parseInt(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Failed to close segment channel: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package cx.flamingo.analysis.cache.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * A cache entry in its stored form, used to move entries between caches in bulk
+ */
+@Data
+@Builder
+public class CacheEntry {
+    private String key;
+    // Serialized JSON value
+    private String value;
+    private long insertTime;
+    // How long the value took to compute, 0 if unknown
+    private long computeTimeMs;
+}
@@ -0,0 +1,19 @@
+package cx.flamingo.analysis.cache.model;
+
+import lombok.Data;
+
+@Data
+public class CacheStats {
+    private long keys;
+    private long bytes;
+    private long orphansRemoved;
+
+    public void addKey(long keyBytes) {
+        keys++;
+        bytes += keyBytes;
+    }
+
+    public void addOrphanRemoved() {
+        orphansRemoved++;
+    }
+}
@@ -7,4 +7,6 @@ import lombok.Data;
 @Builder
 public class Expiration {
     private long timestamp;
+    // How long the value took to compute, 0 if unknown
+    private long computeTimeMs;
 }
@@ -0,0 +1,38 @@
+package cx.flamingo.analysis.cache.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cx.flamingo.analysis.model.Contributor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class Leaderboard {
+    // Sorted by score, highest first
+    private List<Contributor> contributors;
+    // Number of contributors that were requested when this leaderboard was built
+    private int depth;
+
+    /**
+     * A leaderboard can answer a query if it was built at least as deep as requested,
+     * or if the source ran out of contributors before reaching its depth
+     */
+    public boolean covers(int maxResults) {
+        return depth >= maxResults || contributors.size() < depth;
+    }
+
+    public List<Contributor> top(int maxResults) {
+        if (contributors.size() <= maxResults) {
+            return contributors;
+        }
+        return new ArrayList<>(contributors.subList(0, maxResults));
+    }
+
+    public List<Contributor> page(int offset, int limit) {
+        int from = Math.min(offset, contributors.size());
+        int to = (int) Math.min((long) from + limit, contributors.size());
+        return new ArrayList<>(contributors.subList(from, to));
+    }
+}
@@ -0,0 +1,24 @@
+package cx.flamingo.analysis.cache.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Remembers a lookup that returned nothing or failed, so it isn't repeated on every request
+ */
+@Data
+@Builder
+public class Tombstone {
+
+    public enum Reason {
+        EMPTY,
+        ERROR
+    }
+
+    private Reason reason;
+    // Error message, for ERROR tombstones
+    private String message;
+    // Serialized empty result, replayed instead of calling the source again, for EMPTY tombstones
+    private String value;
+    private long timestamp;
+}
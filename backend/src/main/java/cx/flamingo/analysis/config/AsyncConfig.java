@@ -49,10 +49,75 @@ public class AsyncConfig {
         return executorHigh.getThreadPoolExecutor();
     }
 
+    private ThreadPoolTaskExecutor executorSearch;
+
+    /**
+     * Runs the GitHub fetches of deadline-bounded searches, which keep going after the request
+     * got its partial result. Kept apart from the per-city pools the fetches submit to.
+     */
+    @Bean(name = "contributorSearchExecutor")
+    public ThreadPoolExecutor contributorSearchExecutor() {
+        executorSearch = new ThreadPoolTaskExecutor();
+        executorSearch.setCorePoolSize(8);
+        executorSearch.setMaxPoolSize(64);
+        executorSearch.setQueueCapacity(256);
+        executorSearch.setThreadNamePrefix("ContributorSearch-");
+        executorSearch.setWaitForTasksToCompleteOnShutdown(true);
+        executorSearch.setAwaitTerminationSeconds(60);
+        executorSearch.initialize();
+        return executorSearch.getThreadPoolExecutor();
+    }
+
+    private ThreadPoolTaskExecutor executorSearchRequest;
+
+    /**
+     * Runs the searches a request waits on, the misses of a batch side by side and the search
+     * a stream sends the progress of. Kept apart from the search executor their fetches submit
+     * to, a full queue runs the search on the calling thread.
+     */
+    @Bean(name = "searchRequestExecutor")
+    public ThreadPoolExecutor searchRequestExecutor() {
+        executorSearchRequest = new ThreadPoolTaskExecutor();
+        executorSearchRequest.setCorePoolSize(16);
+        executorSearchRequest.setMaxPoolSize(16);
+        executorSearchRequest.setQueueCapacity(256);
+        executorSearchRequest.setThreadNamePrefix("SearchRequest-");
+        executorSearchRequest.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executorSearchRequest.initialize();
+        return executorSearchRequest.getThreadPoolExecutor();
+    }
+
+    private ThreadPoolTaskExecutor executorExport;
+
+    @Value("${export.jobs.concurrency:2}")
+    private int exportJobsConcurrency;
+
+    @Value("${export.jobs.queue.capacity:20}")
+    private int exportJobsQueueCapacity;
+
+    /**
+     * Runs bulk export jobs, a few at a time so they don't compete with interactive searches.
+     * Jobs past the queue are rejected.
+     */
+    @Bean(name = "exportJobExecutor")
+    public ThreadPoolExecutor exportJobExecutor() {
+        executorExport = new ThreadPoolTaskExecutor();
+        executorExport.setCorePoolSize(exportJobsConcurrency);
+        executorExport.setMaxPoolSize(exportJobsConcurrency);
+        executorExport.setQueueCapacity(exportJobsQueueCapacity);
+        executorExport.setThreadNamePrefix("ExportJob-");
+        executorExport.setWaitForTasksToCompleteOnShutdown(false);
+        executorExport.initialize();
+        return executorExport.getThreadPoolExecutor();
+    }
+
     @PreDestroy
     public void shutdown() {
         shutdownThreadPoolExecutor(this.executorLow);
         shutdownThreadPoolExecutor(this.executorHigh);
+        shutdownThreadPoolExecutor(this.executorSearch);
+        shutdownThreadPoolExecutor(this.executorSearchRequest);
+        shutdownThreadPoolExecutor(this.executorExport);
     }
 
     public void shutdownThreadPoolExecutor(ThreadPoolTaskExecutor executor) {
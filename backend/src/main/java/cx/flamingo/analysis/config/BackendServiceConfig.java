@@ -5,7 +5,7 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
 @Configuration
-@Profile("backend-service")
+@Profile("backend-service & !reactive")
 @EnableWebMvc
 public class BackendServiceConfig {
     // Backend-specific configuration can be added here
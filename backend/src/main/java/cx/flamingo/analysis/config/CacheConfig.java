@@ -7,6 +7,7 @@ import org.springframework.context.annotation.Primary;
 
 import cx.flamingo.analysis.cache.CacheServiceAbs;
 import cx.flamingo.analysis.cache.impl.DiskCacheService;
+import cx.flamingo.analysis.cache.impl.MemoryCacheService;
 import cx.flamingo.analysis.cache.impl.ReadOnlyCacheService;
 import cx.flamingo.analysis.cache.impl.RedisCacheService;
 import lombok.Getter;
@@ -40,7 +41,8 @@ public class CacheConfig {
     @RequiredArgsConstructor
     public enum CacheImplementation {
         REDIS("redis"),
-        DISK("disk");
+        DISK("disk"),
+        MEMORY("memory");
 
         private final String value;
 
@@ -50,7 +52,7 @@ public class CacheConfig {
                     return cacheImpl;
                 }
             }
-            throw new IllegalArgumentException("Invalid cache implementation: " + impl + ". Must be 'redis' or 'disk'");
+            throw new IllegalArgumentException("Invalid cache implementation: " + impl + ". Must be 'redis', 'disk' or 'memory'");
         }
     }
 
@@ -64,11 +66,13 @@ public class CacheConfig {
     @Primary
     public CacheServiceAbs cacheService(RedisCacheService redisCache, 
                                       DiskCacheService diskCache,
+                                      MemoryCacheService memoryCache,
                                       ReadOnlyCacheService readOnlyCache) {
         CacheMode mode = CacheMode.fromString(cacheMode);
         CacheImplementation impl = CacheImplementation.fromString(cacheImplementation);
         redisCache.setCacheMode(mode);
         diskCache.setCacheMode(mode);   
+        memoryCache.setCacheMode(mode);
         readOnlyCache.setCacheMode(mode);
         
         log.info("Initializing cache with mode: {} and implementation: {}", mode.getValue(), impl.getValue());
@@ -77,6 +81,10 @@ public class CacheConfig {
             return readOnlyCache;
         }
 
-        return impl == CacheImplementation.REDIS ? redisCache : diskCache;
+        return switch (impl) {
+            case REDIS -> redisCache;
+            case DISK -> diskCache;
+            case MEMORY -> memoryCache;
+        };
     }
 } 
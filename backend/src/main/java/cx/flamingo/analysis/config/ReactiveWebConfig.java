@@ -0,0 +1,37 @@
+package cx.flamingo.analysis.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.config.CorsRegistry;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * WebFlux counterpart of WebConfig for the reactive profile
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+    /**
+     * Tomcat is on the classpath for the servlet stack and would otherwise be picked,
+     * Netty serves requests from a few event loop threads
+     */
+    @Bean
+    public NettyReactiveWebServerFactory reactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Override
+    public void addCorsMappings(CorsRegistry registry) {
+        registry.addMapping("/**") // Allow CORS for all endpoints, including actuator
+            .allowedOrigins(WebConfig.ALLOWED_ORIGINS)
+            .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+            .allowedHeaders("*")
+            .exposedHeaders("Access-Control-Allow-Origin", HttpHeaders.ETAG)
+            .allowCredentials(true)
+            .maxAge(3600); // 1 hour max age
+    }
+}
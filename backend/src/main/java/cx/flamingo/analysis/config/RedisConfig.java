@@ -3,14 +3,21 @@ package cx.flamingo.analysis.config;
 import java.io.IOException;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.RedisStaticMasterReplicaConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import com.google.gson.Gson;
@@ -19,6 +26,10 @@ import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 
+import io.lettuce.core.ReadFrom;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 @Configuration
 public class RedisConfig {
 
@@ -28,10 +39,66 @@ public class RedisConfig {
     @Value("${spring.redis.port:6379}")
     private int redisPort;
 
+    // standalone, or cluster with cache.redis.cluster.nodes
+    @Value("${cache.redis.topology:standalone}")
+    private String topology;
+
+    // Comma separated host:port list
+    @Value("${cache.redis.cluster.nodes:}")
+    private String clusterNodes;
+
+    // Replicas of a standalone primary, when they can't be discovered from it
+    @Value("${cache.redis.replica.nodes:}")
+    private String replicaNodes;
+
+    // Lettuce ReadFrom setting, e.g. upstream or replicaPreferred
+    @Value("${cache.redis.read.from:upstream}")
+    private String readFrom;
+
+    @Value("${cache.redis.hash.tags:false}")
+    private boolean hashTags;
+
     @Bean
-    public RedisConnectionFactory redisConnectionFactory() {
-        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(redisHost, redisPort);
-        return new LettuceConnectionFactory(config);
+    public LettuceConnectionFactory redisConnectionFactory() {
+        LettuceClientConfiguration clientConfig = LettuceClientConfiguration.builder()
+                .readFrom(ReadFrom.valueOf(readFrom))
+                .build();
+
+        if ("cluster".equalsIgnoreCase(topology)) {
+            if (!hashTags) {
+                // Values, their metadata and leases are written together by multi-key commands
+                throw new IllegalStateException("Redis cluster requires cache.redis.hash.tags=true");
+            }
+            log.info("Connecting to Redis cluster {} reading from {}", clusterNodes, readFrom);
+            return new LettuceConnectionFactory(new RedisClusterConfiguration(nodes(clusterNodes)), clientConfig);
+        }
+        if (!"standalone".equalsIgnoreCase(topology)) {
+            throw new IllegalArgumentException("Invalid Redis topology: " + topology
+                    + ". Must be 'standalone' or 'cluster'");
+        }
+
+        List<String> replicas = nodes(replicaNodes);
+        if (!replicas.isEmpty()) {
+            RedisStaticMasterReplicaConfiguration config = new RedisStaticMasterReplicaConfiguration(redisHost,
+                    redisPort);
+            for (String replica : replicas) {
+                int separator = replica.lastIndexOf(':');
+                config.node(replica.substring(0, separator), Integer.parseInt(replica.substring(separator + 1)));
+            }
+            log.info("Connecting to Redis at {}:{} with replicas {} reading from {}", redisHost, redisPort,
+                    replicas, readFrom);
+            return new LettuceConnectionFactory(config, clientConfig);
+        }
+
+        // Lettuce discovers the primary's replicas itself when reading from them
+        return new LettuceConnectionFactory(new RedisStandaloneConfiguration(redisHost, redisPort), clientConfig);
+    }
+
+    private static List<String> nodes(String nodes) {
+        return Arrays.stream(nodes.split(","))
+                .map(String::trim)
+                .filter(node -> !node.isEmpty())
+                .toList();
     }
 
     @Bean
@@ -46,11 +113,29 @@ public class RedisConfig {
         template.setValueSerializer(stringSerializer);
         template.setHashValueSerializer(stringSerializer);
 
-        template.setEnableTransactionSupport(true);
+        // Cache operations are single commands, pipelines and Lua scripts, none of which need
+        // a connection bound to the thread. Without transaction support they share Lettuce's
+        // native connection.
+        template.setEnableTransactionSupport(false);
         template.afterPropertiesSet();
         return template;
     }
 
+    /**
+     * Non-blocking client on the same Lettuce connection factory, for the reactive read path
+     */
+    @Bean
+    public ReactiveStringRedisTemplate reactiveStringRedisTemplate(LettuceConnectionFactory connectionFactory) {
+        return new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
     @Bean
     public Gson gson() {
         return new GsonBuilder()
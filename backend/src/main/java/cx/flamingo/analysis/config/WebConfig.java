@@ -1,31 +1,92 @@
 package cx.flamingo.analysis.config;
 
+import java.time.Duration;
+
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.WebContentInterceptor;
 
 @Configuration
+@Profile("!reactive")
 public class WebConfig implements WebMvcConfigurer {
 
     @Value("${spring.profiles.active:default}")
     private String activeProfile;
 
+    @Value("${http.cache.refresh.interval}")
+    private long httpRefreshIntervalMs;
+
+    // Entities and autocomplete data don't change after startup
+    private static final String[] STATIC_DATA_URL_PATTERNS = { "/api/entities/*", "/api/autocomplete/*" };
+    private static final String[] STATIC_DATA_PATH_PATTERNS = { "/api/entities/**", "/api/autocomplete/**" };
+
+    static final String[] ALLOWED_ORIGINS = {
+        // Development origins
+        "http://localhost:8450",
+        "http://localhost:3000",
+        // Production origins
+        "https://www.mlg.soccer",
+        // Allow the ingress controller origin
+        "http://www.mlg.soccer"
+    };
+
+    /**
+     * Strong ETags from the response body for the static data endpoints, answering 304 to
+     * clients that already have it
+     */
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> staticDataEtagFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration = new FilterRegistrationBean<>(
+                new ShallowEtagHeaderFilter());
+        registration.addUrlPatterns(STATIC_DATA_URL_PATTERNS);
+        return registration;
+    }
+
+    /**
+     * Writes streamed response bodies, such as CSV exports, off the request threads
+     */
+    @Bean
+    public ThreadPoolTaskExecutor streamingResponseExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("StreamingResponse-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingResponseExecutor());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        WebContentInterceptor staticDataCaching = new WebContentInterceptor();
+        staticDataCaching.addCacheMapping(CacheControl.maxAge(Duration.ofMillis(httpRefreshIntervalMs)),
+                STATIC_DATA_PATH_PATTERNS);
+        registry.addInterceptor(staticDataCaching);
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**") // Allow CORS for all endpoints, including actuator
-            .allowedOrigins(
-                // Development origins
-                "http://localhost:8450",
-                "http://localhost:3000",
-                // Production origins
-                "https://www.mlg.soccer",
-                // Allow the ingress controller origin
-                "http://www.mlg.soccer"
-            )
+            .allowedOrigins(ALLOWED_ORIGINS)
             .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
             .allowedHeaders("*")
-            .exposedHeaders("Access-Control-Allow-Origin")
+            .exposedHeaders("Access-Control-Allow-Origin", HttpHeaders.ETAG)
             .allowCredentials(true)
             .maxAge(3600); // 1 hour max age
     }
@@ -1,212 +1,630 @@
 package cx.flamingo.analysis.controller;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cx.flamingo.analysis.cache.CacheReadinessTracker;
 import cx.flamingo.analysis.cache.CacheServiceAbs;
+import cx.flamingo.analysis.cache.model.Expiration;
+import cx.flamingo.analysis.cache.model.Leaderboard;
+import cx.flamingo.analysis.exception.SearchRejectedException;
 import cx.flamingo.analysis.model.ApiResponse;
-import cx.flamingo.analysis.model.City;
 import cx.flamingo.analysis.model.Contributor;
+import cx.flamingo.analysis.model.ContributorFields;
+import cx.flamingo.analysis.model.Deadline;
 import cx.flamingo.analysis.model.Language;
-import cx.flamingo.analysis.model.SocialLink;
-import cx.flamingo.analysis.service.CityService;
+import cx.flamingo.analysis.model.PageInfo;
+import cx.flamingo.analysis.model.SearchQuery;
+import cx.flamingo.analysis.service.ContributorExportService;
+import cx.flamingo.analysis.service.ContributorSearchService;
 import cx.flamingo.analysis.service.GithubService;
-import cx.flamingo.analysis.service.LanguageService;
+import cx.flamingo.analysis.service.SearchAdmissionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/contributors")
+@Profile("!reactive")
 @RequiredArgsConstructor
 public class ContributorController {
 
-    private final GithubService githubService;
-    private final CityService cityService;
+    private final ContributorSearchService contributorSearchService;
+    private final ContributorExportService contributorExportService;
     private final CacheServiceAbs cacheService;
-    private final LanguageService languageService;
+    private final CacheReadinessTracker cacheReadinessTracker;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor streamingResponseExecutor;
+
+    private static final int MAX_PAGE_SIZE = 100;
+    // Deepest result a page may reach, deeper pages would mean a fan-out that deep
+    private static final int MAX_PAGE_DEPTH = 1000;
+    private static final int MAX_BATCH_SIZE = 20;
+    private static final long BATCH_GRACE_MS = 1000;
+    private static final long SSE_TIMEOUT_MS = 600000;
+    private static final String SNAPSHOT_EVENT = "snapshot";
+    private static final String COMPLETE_EVENT = "complete";
+    private static final String ERROR_EVENT = "error";
 
-    private static final String MLG_BASE_URL = "https://www.mlg.soccer";
+    @Value("${http.cache.refresh.interval}")
+    private long httpRefreshIntervalMs;
+
+    @PostConstruct
+    public void init() {
+        cacheService.setHttpBodyRenderer(this::renderSearchResponse);
+    }
 
     @GetMapping("/search")
-    public ApiResponse<List<Contributor>> getContributors(
+    public ResponseEntity<?> searchContributors(
             @RequestParam(required = false) String cityId,
             @RequestParam(required = false) String regionId,
             @RequestParam(required = false) String stateId,
             @RequestParam(required = false) String teamId,
             @RequestParam(required = false) String languageId,
             @RequestParam(defaultValue = "15") int maxResults,
-            @RequestParam(required = false, defaultValue = "High") GithubService.GithubApiPriority priority) {
+            @RequestParam(required = false) Integer offset,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false, defaultValue = "High") GithubService.GithubApiPriority priority,
+            @RequestParam(required = false) Long timeoutMs,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String view,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletRequest request) {
+
+        Optional<ContributorFields> projection;
+        try {
+            projection = ContributorFields.parse(view, fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+
+        String clientId = clientId(request);
+        Deadline deadline = contributorSearchService.deadline(timeoutMs);
+        if (offset != null || limit != null) {
+            return searchContributorsPage(cityId, regionId, stateId, teamId, languageId,
+                    offset != null ? offset : 0, limit != null ? limit : maxResults, priority, clientId,
+                    deadline, projection, ifNoneMatch);
+        }
+
+        // The pre-rendered body is served as-is when the client accepts gzip, it has every field.
+        // Whether it is served decides the representation, and so the ETag, it is looked up once.
+        boolean ready = cacheReadinessTracker.isReady();
+        Optional<byte[]> body = ready && acceptEncoding != null && acceptEncoding.contains("gzip")
+                && projection.isEmpty()
+                ? cacheService.getHttpResponseBody(cityId, regionId, stateId, teamId, languageId, maxResults)
+                : Optional.empty();
+        boolean gzip = body.isPresent();
+
+        // The cached result's metadata identifies the response, a client that already has it
+        // is answered before the ranking is read or rendered
+        Optional<Expiration> version = ready
+                ? cacheService.getHttpResponseExpiration(cityId, regionId, stateId, teamId, languageId)
+                : Optional.empty();
+        HttpHeaders validators = searchValidators(version, 0, maxResults, projection, gzip);
+        if (version.isPresent() && matchesETag(ifNoneMatch, validators.getETag())) {
+            return notModified(validators);
+        }
+
+        if (gzip) {
+            return ResponseEntity.ok()
+                    .headers(validators)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .body(body.get());
+        }
+
+        ApiResponse<List<Contributor>> response = getContributors(cityId, regionId, stateId, teamId, languageId,
+                maxResults, priority, clientId, deadline);
+        boolean complete = "success".equals(response.getStatus()) && !Boolean.TRUE.equals(response.getPartial());
+        return ResponseEntity.ok()
+                .headers(responseValidators(servedVersion(complete, cityId, regionId, stateId, teamId, languageId),
+                        0, maxResults, projection))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .body(project(response, projection));
+    }
 
-        if (!cacheService.isCacheReady()) {
+    /**
+     * A page of a query's stored ranking. Pages are sliced from the ranking, so only the page
+     * is shipped, and the ranking is computed just deep enough to include it.
+     */
+    private ResponseEntity<?> searchContributorsPage(String cityId, String regionId, String stateId, String teamId,
+            String languageId, int offset, int limit, GithubService.GithubApiPriority priority, String clientId,
+            Deadline deadline, Optional<ContributorFields> projection, String ifNoneMatch) {
+        if (offset < 0 || limit <= 0 || limit > MAX_PAGE_SIZE || (long) offset + limit > MAX_PAGE_DEPTH) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(String.format(
+                    "offset must be at least 0, limit between 1 and %d, and offset + limit at most %d",
+                    MAX_PAGE_SIZE, MAX_PAGE_DEPTH)));
+        }
+        if (!cacheReadinessTracker.isReady()) {
             log.warn("Cache is still being populated, returning empty list");
-            return ApiResponse.error("Cache is still being populated");
+            return ResponseEntity.ok(ApiResponse.error("Cache is still being populated"));
+        }
+
+        Optional<Expiration> version = cacheService.getHttpResponseExpiration(cityId, regionId, stateId, teamId,
+                languageId);
+        HttpHeaders validators = searchValidators(version, offset, limit, projection, false);
+        if (version.isPresent() && matchesETag(ifNoneMatch, validators.getETag())) {
+            return notModified(validators);
+        }
+
+        long generation = cacheService.getReadGeneration();
+        Optional<ContributorSearchService.SearchResult> result = contributorSearchService.search(cityId, regionId,
+                stateId, teamId, languageId, offset + limit, priority, clientId, null, deadline);
+        if (result.isEmpty()) {
+            log.warn("Cache miss and failed to fetch contributors. Returning empty list.");
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(ApiResponse.error("Failed to fetch contributors"));
+        }
+
+        Optional<Expiration> served = servedVersion(!result.get().isPartial(), cityId, regionId, stateId, teamId,
+                languageId);
+        return ResponseEntity.ok()
+                .headers(responseValidators(served, offset, limit, projection))
+                .body(project(toPageResponse(result.get(), offset, limit, generation,
+                        served.map(Expiration::getTimestamp).orElse(null))
+                        .withCoverage(result.get().coverage()), projection));
+    }
+
+    /**
+     * The response with only the contributor fields asked for, as is if none were
+     */
+    private static ApiResponse<?> project(ApiResponse<List<Contributor>> response,
+            Optional<ContributorFields> projection) {
+        return projection.isPresent() ? response.map(projection.get()::project) : response;
+    }
+
+    /**
+     * Metadata of the ranking a complete search was answered from, read after the search as an
+     * early refresh or a deeper compute may have replaced it. None for a partial or failed one.
+     */
+    private Optional<Expiration> servedVersion(boolean complete, String cityId, String regionId, String stateId,
+            String teamId, String languageId) {
+        return complete ? cacheService.getHttpResponseExpiration(cityId, regionId, stateId, teamId, languageId)
+                : Optional.empty();
+    }
+
+    /**
+     * A page cut from a ranking computed to offset + limit. A complete ranking that ran out
+     * before its depth holds every contributor there is, and gives the total. Otherwise the
+     * ranking may go on past its depth, the next page computes it deeper.
+     */
+    private ApiResponse<List<Contributor>> toPageResponse(ContributorSearchService.SearchResult result, int offset,
+            int limit, long generation, Long insertTime) {
+        Leaderboard ranking = result.ranking();
+        List<Contributor> contributors = ranking.page(offset, limit);
+        boolean exhausted = !result.isPartial() && ranking.getContributors().size() < ranking.getDepth();
+        Integer total = exhausted ? ranking.getContributors().size() : null;
+        int next = offset + limit;
+        boolean hasNext = exhausted ? next < total : next < MAX_PAGE_DEPTH;
+        ApiResponse<List<Contributor>> response = toSearchResponse(contributors);
+        response.setPage(PageInfo.builder()
+                .offset(offset)
+                .limit(limit)
+                .total(total)
+                .generation(generation)
+                .insertTime(insertTime)
+                .nextOffset(hasNext ? next : null)
+                .build());
+        return response;
+    }
+
+    /**
+     * ETag, Last-Modified and Cache-Control of a search response, none if the query isn't cached
+     */
+    private HttpHeaders searchValidators(Optional<Expiration> version, int offset, int limit,
+            Optional<ContributorFields> projection, boolean gzip) {
+        HttpHeaders validators = new HttpHeaders();
+        version.ifPresent(expiration -> {
+            validators.setETag(searchETag(expiration, offset, limit, projection, gzip));
+            validators.setLastModified(expiration.getTimestamp());
+            validators.setCacheControl(searchCacheControl(expiration));
+        });
+        return validators;
+    }
+
+    /**
+     * Validators of a response that was searched for. One that isn't a cached ranking, such as
+     * a partial result, has none and must not be stored.
+     */
+    private HttpHeaders responseValidators(Optional<Expiration> served, int offset, int limit,
+            Optional<ContributorFields> projection) {
+        if (served.isPresent()) {
+            return searchValidators(served, offset, limit, projection, false);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(CacheControl.noStore());
+        return headers;
+    }
+
+    private static ResponseEntity<?> notModified(HttpHeaders validators) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .headers(validators)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .build();
+    }
+
+    /**
+     * Strong ETag of a search response: the cache generation and insert time of the ranking
+     * it is cut from, the range of results cut, the fields they have and, the gzip body being
+     * a different representation, its encoding
+     */
+    private String searchETag(Expiration version, int offset, int limit, Optional<ContributorFields> projection,
+            boolean gzip) {
+        return String.format("\"%d-%x-%d-%d%s%s\"", cacheService.getReadGeneration(), version.getTimestamp(),
+                offset, limit, projection.map(fields -> "-" + fields.tag()).orElse(""), gzip ? "-gz" : "");
+    }
+
+    /**
+     * Clients may reuse a response until its ranking is due a refresh
+     */
+    private CacheControl searchCacheControl(Expiration version) {
+        long age = System.currentTimeMillis() - version.getTimestamp();
+        return CacheControl.maxAge(Duration.ofMillis(Math.max(0, httpRefreshIntervalMs - age)))
+                .mustRevalidate();
+    }
+
+    /**
+     * If-None-Match uses the weak comparison, a proxy compressing the response may have
+     * marked the ETag weak
+     */
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Several searches in one request. All cached rankings are read in one multi-get and
+     * refreshed in the background when due, the queries without one go through the regular
+     * search side by side, under one deadline. Results are keyed by query id, each with its
+     * own status.
+     */
+    @PostMapping("/search/batch")
+    public ResponseEntity<ApiResponse<Map<String, ApiResponse<List<Contributor>>>>> searchContributorsBatch(
+            @RequestBody List<SearchQuery> queries,
+            @RequestParam(required = false, defaultValue = "High") GithubService.GithubApiPriority priority,
+            @RequestParam(required = false) Long timeoutMs,
+            HttpServletRequest request) {
+        if (queries == null || queries.isEmpty() || queries.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(
+                    String.format("A batch must have between 1 and %d queries", MAX_BATCH_SIZE)));
+        }
+        List<String> ids = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            String id = queries.get(i).getId() != null ? queries.get(i).getId() : String.valueOf(i);
+            if (ids.contains(id)) {
+                return ResponseEntity.badRequest().body(ApiResponse.error("Duplicate query id: " + id));
+            }
+            ids.add(id);
+        }
+        if (!cacheReadinessTracker.isReady()) {
+            log.warn("Cache is still being populated, returning empty list");
+            return ResponseEntity.ok(ApiResponse.error("Cache is still being populated"));
         }
 
-        return cacheService.getHttpResponse(cityId, regionId, stateId, teamId, languageId, maxResults, () -> {
-            List<City> targetCities = githubService.getTargetCities(cityId, regionId, stateId, teamId);
+        List<Optional<Leaderboard>> cachedRankings = cacheService.getCachedHttpRankings(queries);
+        String clientId = clientId(request);
+        Deadline deadline = contributorSearchService.deadline(timeoutMs);
+        List<CompletableFuture<ApiResponse<List<Contributor>>>> pending = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            SearchQuery query = queries.get(i);
+            String id = ids.get(i);
+            if (query.getMaxResults() <= 0) {
+                pending.add(CompletableFuture.completedFuture(ApiResponse.error("maxResults must be greater than 0")));
+                continue;
+            }
 
-            Language selectedLanguage = languageId != null ? languageService.getLanguageById(languageId) : languageService.getDefaultLanguage();
-            if (selectedLanguage == null) {
-                log.warn("Language not found with ID: {}, using default language", languageId);
-                selectedLanguage = languageService.getDefaultLanguage();
+            Optional<Leaderboard> cachedRanking = cachedRankings.get(i)
+                    .filter(ranking -> ranking.covers(query.getMaxResults()));
+            if (cachedRanking.isPresent()) {
+                contributorSearchService.refreshIfDue(query, cachedRanking.get(), priority, clientId);
+                pending.add(CompletableFuture.completedFuture(
+                        toSearchResponse(cachedRanking.get().top(query.getMaxResults()))));
+            } else {
+                pending.add(contributorSearchService.searchAsync(query.getCityId(), query.getRegionId(),
+                                query.getStateId(), query.getTeamId(), query.getLanguageId(), query.getMaxResults(),
+                                priority, clientId, null, deadline)
+                        .handle((result, e) -> toBatchResponse(result, e, query, id)));
             }
+        }
 
-            return githubService.getTopContributorsIn(targetCities, selectedLanguage, maxResults, priority);
-        }).map(contributors -> {
-            String message = String.format("Found %d contributors matching the criteria", contributors.size());
-            return ApiResponse.success(contributors, message);
-        }).orElseGet(() -> {
-            log.warn("Cache miss and failed to fetch contributors. Returning empty list.");
+        // A miss answers with its partial result at the deadline, leave it time to hand it back
+        Deadline answerBy = deadline.extendedBy(BATCH_GRACE_MS);
+        Map<String, ApiResponse<List<Contributor>>> results = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            results.put(ids.get(i), awaitBatchQuery(pending.get(i), ids.get(i), answerBy));
+        }
+
+        String message = String.format("Answered %d queries", results.size());
+        return ResponseEntity.ok(ApiResponse.success(results, message));
+    }
+
+    private ApiResponse<List<Contributor>> toBatchResponse(Optional<ContributorSearchService.SearchResult> result,
+            Throwable error, SearchQuery query, String id) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (cause instanceof SearchRejectedException) {
+            return ApiResponse.error(cause.getMessage());
+        }
+        if (cause != null) {
+            log.error("Failed to search contributors for batch query {}: {}", id, cause.getMessage());
+            return ApiResponse.error("Failed to fetch contributors");
+        }
+        return result
+                .map(found -> toSearchResponse(found.ranking().top(query.getMaxResults()))
+                        .withCoverage(found.coverage()))
+                .orElseGet(() -> ApiResponse.error("Failed to fetch contributors"));
+    }
+
+    private static ApiResponse<List<Contributor>> awaitBatchQuery(
+            CompletableFuture<ApiResponse<List<Contributor>>> result, String id, Deadline answerBy) {
+        try {
+            return result.get(answerBy.remainingMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Batch query {} wasn't answered by the search deadline", id);
+            return ApiResponse.error("Search deadline passed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ApiResponse.error("Failed to fetch contributors");
+        } catch (ExecutionException e) {
+            log.error("Failed to search contributors for batch query {}: {}", id, e.getMessage());
             return ApiResponse.error("Failed to fetch contributors");
+        }
+    }
+
+    /**
+     * Server-Sent Events variant of the search. A cached result is sent at once as the
+     * "complete" event. On a miss, a "snapshot" event with the top contributors so far is
+     * sent each time a city completes, then "complete" with the final result, which is
+     * cached like any other search. The search runs apart from the streaming thread, which
+     * sends the latest snapshot whenever the client is ready for it.
+     */
+    @GetMapping(value = "/search/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamContributors(
+            @RequestParam(required = false) String cityId,
+            @RequestParam(required = false) String regionId,
+            @RequestParam(required = false) String stateId,
+            @RequestParam(required = false) String teamId,
+            @RequestParam(required = false) String languageId,
+            @RequestParam(defaultValue = "15") int maxResults,
+            @RequestParam(required = false, defaultValue = "High") GithubService.GithubApiPriority priority,
+            HttpServletRequest request) {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        if (!cacheReadinessTracker.isReady()) {
+            sendEvent(emitter, ERROR_EVENT, ApiResponse.error("Cache is still being populated"));
+            emitter.complete();
+            return emitter;
+        }
+
+        String clientId = clientId(request);
+        streamingResponseExecutor.execute(() -> {
+            try {
+                SnapshotSlot snapshots = new SnapshotSlot();
+                CompletableFuture<Optional<ContributorSearchService.SearchResult>> search = contributorSearchService
+                        .searchAsync(cityId, regionId, stateId, teamId, languageId, maxResults, priority, clientId,
+                                snapshots::offer, Deadline.NONE);
+                search.whenComplete((result, e) -> snapshots.close());
+                for (List<Contributor> snapshot = snapshots.take(); snapshot != null; snapshot = snapshots.take()) {
+                    sendEvent(emitter, SNAPSHOT_EVENT, toSearchResponse(top(snapshot, maxResults)));
+                }
+
+                sendEvent(emitter, COMPLETE_EVENT, search.join()
+                        .map(result -> toSearchResponse(result.ranking().top(maxResults)))
+                        .orElseGet(() -> ApiResponse.error("Failed to fetch contributors")));
+                emitter.complete();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof SearchRejectedException rejection) {
+                    sendEvent(emitter, ERROR_EVENT, ApiResponse.error(rejection.getMessage()));
+                } else {
+                    log.error("Failed to stream contributors: {}", e.getMessage());
+                    sendEvent(emitter, ERROR_EVENT, ApiResponse.error("Failed to fetch contributors"));
+                }
+                emitter.complete();
+            } catch (Exception e) {
+                log.error("Failed to stream contributors: {}", e.getMessage());
+                sendEvent(emitter, ERROR_EVENT, ApiResponse.error("Failed to fetch contributors"));
+                emitter.complete();
+            }
         });
+        return emitter;
+    }
+
+    /**
+     * Latest progress snapshot of a streamed search, handed from the GitHub pool threads to
+     * the streaming thread. Snapshots a slow client missed are replaced, never queued.
+     */
+    private static class SnapshotSlot {
+        private List<Contributor> latest;
+        private boolean closed;
+
+        private synchronized void offer(List<Contributor> snapshot) {
+            latest = snapshot;
+            notifyAll();
+        }
+
+        private synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+
+        /**
+         * The snapshot offered since the last call, waiting for one, null once closed and all taken
+         */
+        private synchronized List<Contributor> take() throws InterruptedException {
+            while (latest == null && !closed) {
+                wait();
+            }
+            List<Contributor> snapshot = latest;
+            latest = null;
+            return snapshot;
+        }
+    }
+
+    private static List<Contributor> top(List<Contributor> contributors, int maxResults) {
+        return contributors.size() <= maxResults ? contributors : contributors.subList(0, maxResults);
+    }
+
+    /**
+     * Sends an event, a client that went away is only logged, the search still completes and is cached
+     */
+    private static void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Failed to send {} event: {}", name, e.getMessage());
+        }
+    }
+
+    public ApiResponse<List<Contributor>> getContributors(
+            String cityId,
+            String regionId,
+            String stateId,
+            String teamId,
+            String languageId,
+            int maxResults,
+            GithubService.GithubApiPriority priority,
+            String clientId,
+            Deadline deadline) {
+
+        if (!cacheReadinessTracker.isReady()) {
+            log.warn("Cache is still being populated, returning empty list");
+            return ApiResponse.error("Cache is still being populated");
+        }
+
+        return contributorSearchService.search(cityId, regionId, stateId, teamId, languageId, maxResults,
+                        priority, clientId, null, deadline)
+                .map(result -> toSearchResponse(result.ranking().top(maxResults)).withCoverage(result.coverage()))
+                .orElseGet(() -> {
+                    log.warn("Cache miss and failed to fetch contributors. Returning empty list.");
+                    return ApiResponse.error("Failed to fetch contributors");
+                });
     }
 
     @GetMapping("/export")
-    public ResponseEntity<String> exportContributors(
+    public ResponseEntity<?> exportContributors(
             @RequestParam(required = false) String cityId,
             @RequestParam(required = false) String regionId,
             @RequestParam(required = false) String stateId,
             @RequestParam(required = false) String teamId,
             @RequestParam(required = false) String languageId,
             @RequestParam(defaultValue = "15") int maxResults,
-            @RequestParam(required = false, defaultValue = "High") GithubService.GithubApiPriority priority) {
+            @RequestParam(required = false, defaultValue = "High") GithubService.GithubApiPriority priority,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request) {
         
-        if (!cacheService.isCacheReady()) {
+        if (!cacheReadinessTracker.isReady()) {
             return ResponseEntity.badRequest().body("Cache is still being populated");
         }
 
-        var contributorsResponse = cacheService.getHttpResponse(cityId, regionId, stateId, teamId, languageId, maxResults, () -> {
-            List<City> targetCities = githubService.getTargetCities(cityId, regionId, stateId, teamId);
-
-            Language selectedLanguage = languageId != null ? languageService.getLanguageById(languageId) : languageService.getDefaultLanguage();
-            if (selectedLanguage == null) {
-                log.warn("Language not found with ID: {}, using default language", languageId);
-                selectedLanguage = languageService.getDefaultLanguage();
-            }
-
-            return githubService.getTopContributorsIn(targetCities, selectedLanguage, maxResults, priority);
-        });
+        var contributorsResponse = findContributors(cityId, regionId, stateId, teamId, languageId, maxResults,
+                priority, clientId(request));
 
         if (!contributorsResponse.isPresent()) {
             return ResponseEntity.internalServerError().body("Failed to fetch contributors");
         }
 
         List<Contributor> contributors = contributorsResponse.get();
+        Language language = contributorSearchService.resolveLanguage(languageId);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
 
-        StringWriter stringWriter = new StringWriter();
-        CSVFormat csvFormat = CSVFormat.DEFAULT.builder()
-            .setHeader("Rank", "First Name", "Last Name", "City", "State", "MLG URL", "GitHub URL", "Email", "Twitter", "LinkedIn")
-            .build();
-
-        try (CSVPrinter csvPrinter = new CSVPrinter(stringWriter, csvFormat)) {
-            int rank = 1;
-            for (Contributor contributor : contributors) {
-                String[] nameParts = (contributor.getName() != null ? contributor.getName() : "Unknown Unknown").split(" ", 2);
-                String firstName = nameParts[0];
-                String lastName = nameParts.length > 1 ? nameParts[1] : "";
-                
-                String cityName = contributor.getCity() != null ? contributor.getCity().getName() : "";
-                String stateName = contributor.getCity() != null && contributor.getCity().getState() != null ? 
-                    contributor.getCity().getState().getName() : "";
-                String mlgUrl = "";
-                if (contributor.getCity() != null) {
-                    mlgUrl = String.format("%s/?languageId=%s&cityId=%s", 
-                        MLG_BASE_URL, 
-                        languageId != null ? languageId : languageService.getDefaultLanguage().getId(),
-                        contributor.getCity().getId()
-                    );
-                }
-                
-                // Initialize social URLs
-                String githubUrl = "";
-                String emailUrl = "";
-                String twitterUrl = "";
-                String linkedinUrl = "";
-                
-                // Extract social URLs
-                if (contributor.getSocialLinks() != null) {
-                    for (SocialLink link : contributor.getSocialLinks()) {
-                        switch (link.getPlatform().toLowerCase()) {
-                            case "github":
-                                githubUrl = link.getUrl();
-                                break;
-                            case "email":
-                                emailUrl = link.getUrl().replace("mailto:", "");
-                                break;
-                            case "twitter":
-                                twitterUrl = link.getUrl();
-                                break;
-                            case "linkedin":
-                                linkedinUrl = link.getUrl();
-                                break;
-                        }
-                    }
-                }
-
-                csvPrinter.printRecord(
-                    rank++,
-                    firstName,
-                    lastName,
-                    cityName,
-                    stateName,
-                    mlgUrl,
-                    githubUrl,
-                    emailUrl,
-                    twitterUrl,
-                    linkedinUrl
-                );
+        // The ranking is read in full before the first byte, like any search. Only the CSV text
+        // isn't held: rows are formatted into the response buffer, which is flushed as it fills.
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = gzip
+                    ? new GZIPOutputStream(outputStream, ContributorExportService.CSV_BUFFER_SIZE)
+                    : outputStream;
+            try (Writer writer = ContributorExportService.csvWriter(out)) {
+                contributorExportService.writeCsv(writer, contributors, language);
             }
-        } catch (IOException e) {
-            log.error("Error creating CSV file", e);
-            return ResponseEntity.internalServerError().body("Error creating CSV file");
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, String.format("attachment; filename=%s",
+                    contributorExportService.exportFilename(cityId, regionId, stateId, language)))
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+            .contentType(MediaType.parseMediaType("text/csv"));
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
         }
+        return response.body(body);
+    }
 
-        // Get the current date and time
-        LocalDateTime now = LocalDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        String dateStr = now.format(formatter);
-        
-        // Get language name
-        Language language = languageId != null ? 
-            languageService.getLanguageById(languageId) : 
-            languageService.getDefaultLanguage();
-        String languageName = language.getName().toLowerCase();
-        
-        // Build location part of filename
-        String locationPart = "all";
-        if (cityId != null) {
-            City city = cityService.getCityById(cityId);
-            locationPart = city != null ? city.getId() : "all";
-        } else if (stateId != null) {
-            locationPart = stateId;
-        } else if (regionId != null) {
-            locationPart = regionId;
-        }
-
-        // Construct filename
-        String filename = String.format("mlg-contributors-%s-%s-%s.csv", 
-            languageName,
-            locationPart,
-            dateStr
-        );
+    private Optional<List<Contributor>> findContributors(String cityId, String regionId, String stateId,
+            String teamId, String languageId, int maxResults, GithubService.GithubApiPriority priority,
+            String clientId) {
+        return contributorSearchService.findRanking(cityId, regionId, stateId, teamId, languageId, maxResults,
+                        priority, clientId, null)
+                .map(ranking -> ranking.top(maxResults));
+    }
 
-        return ResponseEntity.ok()
-            .header(HttpHeaders.CONTENT_DISPOSITION, String.format("attachment; filename=%s", filename))
-            .contentType(MediaType.parseMediaType("text/csv"))
-            .body(stringWriter.toString());
+    private static String clientId(HttpServletRequest request) {
+        return SearchAdmissionService.clientId(request.getHeader("X-Forwarded-For"), request.getRemoteAddr());
+    }
+
+    private ApiResponse<List<Contributor>> toSearchResponse(List<Contributor> contributors) {
+        String message = String.format("Found %d contributors matching the criteria", contributors.size());
+        return ApiResponse.success(contributors, message);
+    }
+
+    /**
+     * Renders the search response exactly as it would be serialized for the client, gzip-compressed
+     */
+    private byte[] renderSearchResponse(List<Contributor> contributors) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(body)) {
+            objectMapper.writeValue(gzip, toSearchResponse(contributors));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to render search response", e);
+        }
+        return body.toByteArray();
     }
 }
@@ -0,0 +1,95 @@
+package cx.flamingo.analysis.controller;
+
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import cx.flamingo.analysis.cache.CacheReadinessTracker;
+import cx.flamingo.analysis.model.ApiResponse;
+import cx.flamingo.analysis.model.ExportJob;
+import cx.flamingo.analysis.model.ExportJobRequest;
+import cx.flamingo.analysis.service.ExportJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk exports too large for /api/contributors/export: submit a job, poll its status, then
+ * download its zip. Works on both the servlet and the reactive stack.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/contributors/export/jobs")
+@RequiredArgsConstructor
+public class ExportJobController {
+
+    private final ExportJobService exportJobService;
+    private final CacheReadinessTracker cacheReadinessTracker;
+
+    @Value("${export.jobs.retry.after.s:60}")
+    private long retryAfterSeconds;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<ExportJob>> submitExportJob(@RequestBody ExportJobRequest request) {
+        if (!cacheReadinessTracker.isReady()) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Cache is still being populated"));
+        }
+
+        try {
+            ExportJob job = exportJobService.submit(request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/api/contributors/export/jobs/" + job.getId())
+                    .body(ApiResponse.success(job, String.format("Export job queued with %d files",
+                            job.getFilesTotal())));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            log.warn("Export job queue is full, rejecting job");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body(ApiResponse.error("Too many export jobs queued, try again later"));
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponse<ExportJob>> getExportJob(@PathVariable String id) {
+        return exportJobService.getJob(id)
+                .map(job -> ResponseEntity.ok(ApiResponse.success(job)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponse.error(String.format("Export job not found with ID: %s", id))));
+    }
+
+    @GetMapping("/{id}/download")
+    public ResponseEntity<?> downloadExportJob(@PathVariable String id) {
+        Optional<ExportJob> job = exportJobService.getJob(id);
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error(String.format("Export job not found with ID: %s", id)));
+        }
+        Optional<InputStream> artifact = exportJobService.openArtifact(job.get());
+        if (artifact.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(String.format("Export job %s is %s", id,
+                            job.get().getStatus().name().toLowerCase())));
+        }
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, String.format("attachment; filename=%s",
+                        exportJobService.artifactFilename(job.get())))
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .contentLength(job.get().getSizeBytes())
+                .body(new InputStreamResource(artifact.get()));
+    }
+}
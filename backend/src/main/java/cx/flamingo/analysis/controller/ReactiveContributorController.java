@@ -0,0 +1,181 @@
+package cx.flamingo.analysis.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import cx.flamingo.analysis.cache.CacheReadinessTracker;
+import cx.flamingo.analysis.exception.SearchRejectedException;
+import cx.flamingo.analysis.model.ApiResponse;
+import cx.flamingo.analysis.model.Contributor;
+import cx.flamingo.analysis.model.ContributorFields;
+import cx.flamingo.analysis.model.Deadline;
+import cx.flamingo.analysis.model.Language;
+import cx.flamingo.analysis.service.ContributorExportService;
+import cx.flamingo.analysis.service.ContributorSearchService;
+import cx.flamingo.analysis.service.GithubService;
+import cx.flamingo.analysis.service.SearchAdmissionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Contributor search on the reactive stack, used instead of ContributorController with the
+ * reactive profile. Cached rankings are read from Redis without blocking, so the event loop
+ * threads serve hits at full rate; misses are computed on bounded elastic threads.
+ * Only the search and its CSV export are served here. Paging, conditional requests, the
+ * pre-rendered gzip body, batch and streamed searches are left to the servlet stack, paging
+ * parameters are rejected rather than ignored.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/contributors")
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveContributorController {
+
+    private final ContributorSearchService contributorSearchService;
+    private final ContributorExportService contributorExportService;
+    private final CacheReadinessTracker cacheReadinessTracker;
+
+    @GetMapping("/search")
+    public Mono<ResponseEntity<ApiResponse<?>>> searchContributors(
+            @RequestParam(required = false) String cityId,
+            @RequestParam(required = false) String regionId,
+            @RequestParam(required = false) String stateId,
+            @RequestParam(required = false) String teamId,
+            @RequestParam(required = false) String languageId,
+            @RequestParam(defaultValue = "15") int maxResults,
+            @RequestParam(required = false, defaultValue = "High") GithubService.GithubApiPriority priority,
+            @RequestParam(required = false) Integer offset,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long timeoutMs,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String view,
+            ServerHttpRequest request) {
+
+        if (offset != null || limit != null) {
+            return Mono.just(ResponseEntity.badRequest().body(ApiResponse.error(
+                    "Paging is not served by the reactive backend")));
+        }
+
+        Optional<ContributorFields> projection;
+        try {
+            projection = ContributorFields.parse(view, fields);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage())));
+        }
+
+        if (!cacheReadinessTracker.isReady()) {
+            log.warn("Cache is still being populated, returning empty list");
+            return Mono.just(ResponseEntity.ok(ApiResponse.error("Cache is still being populated")));
+        }
+
+        Deadline deadline = contributorSearchService.deadline(timeoutMs);
+        return contributorSearchService.searchReactive(cityId, regionId, stateId, teamId, languageId,
+                        maxResults, priority, clientId(request), deadline)
+                .map(result -> ResponseEntity.<ApiResponse<?>>ok(project(
+                        toSearchResponse(result.ranking().top(maxResults)).withCoverage(result.coverage()),
+                        projection)))
+                .onErrorResume(SearchRejectedException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                                .body(ApiResponse.error(e.getMessage()))))
+                .onErrorResume(e -> {
+                    log.error("Failed to search contributors: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .defaultIfEmpty(ResponseEntity.ok(ApiResponse.error("Failed to fetch contributors")));
+    }
+
+    /**
+     * CSV export of a search, as on the servlet stack. Rows are written to the response as
+     * they are formatted, on a bounded elastic thread, nothing holds the whole file.
+     */
+    @GetMapping("/export")
+    public Mono<ResponseEntity<?>> exportContributors(
+            @RequestParam(required = false) String cityId,
+            @RequestParam(required = false) String regionId,
+            @RequestParam(required = false) String stateId,
+            @RequestParam(required = false) String teamId,
+            @RequestParam(required = false) String languageId,
+            @RequestParam(defaultValue = "15") int maxResults,
+            @RequestParam(required = false, defaultValue = "High") GithubService.GithubApiPriority priority,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerHttpRequest request) {
+
+        if (!cacheReadinessTracker.isReady()) {
+            return Mono.just(ResponseEntity.badRequest().body("Cache is still being populated"));
+        }
+
+        Language language = contributorSearchService.resolveLanguage(languageId);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        return contributorSearchService.searchReactive(cityId, regionId, stateId, teamId, languageId, maxResults,
+                        priority, clientId(request), Deadline.NONE)
+                .<ResponseEntity<?>>map(result -> {
+                    List<Contributor> contributors = result.ranking().top(maxResults);
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                            .header(HttpHeaders.CONTENT_DISPOSITION, String.format("attachment; filename=%s",
+                                    contributorExportService.exportFilename(cityId, regionId, stateId, language)))
+                            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                            .contentType(MediaType.parseMediaType("text/csv"));
+                    if (gzip) {
+                        response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+                    }
+                    return response.body(Flux.from(DataBufferUtils.outputStreamPublisher(
+                            outputStream -> writeCsv(outputStream, contributors, language, gzip),
+                            DefaultDataBufferFactory.sharedInstance, Schedulers.boundedElastic()::schedule)));
+                })
+                .defaultIfEmpty(ResponseEntity.internalServerError().body("Failed to fetch contributors"));
+    }
+
+    private void writeCsv(OutputStream outputStream, List<Contributor> contributors, Language language,
+            boolean gzip) {
+        try {
+            OutputStream out = gzip
+                    ? new GZIPOutputStream(outputStream, ContributorExportService.CSV_BUFFER_SIZE)
+                    : outputStream;
+            try (Writer writer = ContributorExportService.csvWriter(out)) {
+                contributorExportService.writeCsv(writer, contributors, language);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ApiResponse<?> project(ApiResponse<List<Contributor>> response,
+            Optional<ContributorFields> projection) {
+        return projection.isPresent() ? response.map(projection.get()::project) : response;
+    }
+
+    private static String clientId(ServerHttpRequest request) {
+        return SearchAdmissionService.clientId(request.getHeaders().getFirst("X-Forwarded-For"),
+                request.getRemoteAddress() != null ? request.getRemoteAddress().getAddress().getHostAddress()
+                        : null);
+    }
+
+    private ApiResponse<List<Contributor>> toSearchResponse(List<Contributor> contributors) {
+        String message = String.format("Found %d contributors matching the criteria", contributors.size());
+        return ApiResponse.success(contributors, message);
+    }
+}
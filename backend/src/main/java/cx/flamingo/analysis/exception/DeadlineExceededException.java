@@ -0,0 +1,11 @@
+package cx.flamingo.analysis.exception;
+
+/**
+ * Work was abandoned because its deadline passed, or would have before it could complete
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,8 @@ package cx.flamingo.analysis.exception;
 
 import java.time.LocalDateTime;
 
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -10,10 +12,27 @@ import org.springframework.web.context.request.WebRequest;
 
 import lombok.extern.slf4j.Slf4j;
 
+// WebRequest is servlet-only, ReactiveExceptionHandler answers the same on the reactive stack
 @Slf4j
 @ControllerAdvice
+@Profile("!reactive")
 public class GlobalExceptionHandler {
 
+    @ExceptionHandler(SearchRejectedException.class)
+    public ResponseEntity<ApiError> handleSearchRejected(SearchRejectedException ex, WebRequest request) {
+        ApiError error = ApiError.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .error(HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase())
+                .message(ex.getMessage())
+                .path(request.getDescription(false))
+                .build();
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(error);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiError> handleAllExceptions(Exception ex, WebRequest request) {
         log.error("Unhandled exception", ex);
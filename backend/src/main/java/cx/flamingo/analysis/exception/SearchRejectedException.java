@@ -0,0 +1,17 @@
+package cx.flamingo.analysis.exception;
+
+import lombok.Getter;
+
+/**
+ * A search that would have fetched from GitHub was turned away by admission control
+ */
+@Getter
+public class SearchRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public SearchRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -1,5 +1,9 @@
 package cx.flamingo.analysis.model;
 
+import java.util.function.Function;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.Builder;
 import lombok.Data;
 
@@ -9,6 +13,14 @@ public class ApiResponse<T> {
     private String status;
     private String message;
     private T data;
+    // Only set on paginated responses
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private PageInfo page;
+    // Only set when the search ran out of time, the data is then the best result so far
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean partial;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private SearchCoverage coverage;
 
     public static <T> ApiResponse<T> success(T data) {
         return ApiResponse.<T>builder()
@@ -31,4 +43,31 @@ public class ApiResponse<T> {
             .message(message)
             .build();
     }
+
+    /**
+     * The same response with its data mapped, for another representation of it
+     */
+    public <R> ApiResponse<R> map(Function<T, R> mapper) {
+        return ApiResponse.<R>builder()
+            .status(status)
+            .message(message)
+            .data(data != null ? mapper.apply(data) : null)
+            .page(page)
+            .partial(partial)
+            .coverage(coverage)
+            .build();
+    }
+
+    /**
+     * Flags the response as partial if coverage is set, the search then ran out of time
+     */
+    public ApiResponse<T> withCoverage(SearchCoverage coverage) {
+        if (coverage != null) {
+            this.partial = true;
+            this.coverage = coverage;
+            this.message = String.format("%s, partial result from %d of %d cities", message,
+                coverage.getCitiesCompleted(), coverage.getCitiesTotal());
+        }
+        return this;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,112 @@
+package cx.flamingo.analysis.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Sparse fieldset of a contributor in search responses, set with the fields or view request
+ * parameters. The compact view leaves out the embedded city and team in favor of their ids,
+ * which clients resolve from /api/entities, and the stats map duplicating the stat fields.
+ */
+public final class ContributorFields {
+
+    public static final String COMPACT_VIEW = "compact";
+
+    private static final Map<String, Function<Contributor, Object>> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put("login", Contributor::getLogin);
+        FIELDS.put("name", Contributor::getName);
+        FIELDS.put("avatarUrl", Contributor::getAvatarUrl);
+        FIELDS.put("url", Contributor::getUrl);
+        FIELDS.put("email", Contributor::getEmail);
+        FIELDS.put("role", Contributor::getRole);
+        FIELDS.put("bio", Contributor::getBio);
+        FIELDS.put("type", Contributor::getType);
+        FIELDS.put("socialLinks", Contributor::getSocialLinks);
+        FIELDS.put("cityId", Contributor::getCityId);
+        FIELDS.put("nearestTeamId", Contributor::getNearestTeamId);
+        FIELDS.put("city", Contributor::getCity);
+        FIELDS.put("nearestTeam", Contributor::getNearestTeam);
+        FIELDS.put("githubStats", Contributor::getGithubStats);
+        FIELDS.put("lastActive", Contributor::getLastActive);
+        FIELDS.put("totalCommits", Contributor::getTotalCommits);
+        FIELDS.put("javaRepos", Contributor::getJavaRepos);
+        FIELDS.put("starsReceived", Contributor::getStarsReceived);
+        FIELDS.put("forksReceived", Contributor::getForksReceived);
+        FIELDS.put("starsGiven", Contributor::getStarsGiven);
+        FIELDS.put("forksGiven", Contributor::getForksGiven);
+        FIELDS.put("score", Contributor::getScore);
+    }
+
+    private static final List<String> COMPACT_FIELDS = List.of("login", "name", "avatarUrl", "url", "type",
+            "socialLinks", "cityId", "nearestTeamId", "lastActive", "totalCommits", "javaRepos", "starsReceived",
+            "forksReceived", "starsGiven", "forksGiven", "score");
+
+    private final List<String> names;
+
+    private ContributorFields(List<String> names) {
+        this.names = names;
+    }
+
+    /**
+     * The fieldset asked for, empty for the full representation. fields, a comma separated
+     * list of field names, takes precedence over view. Unknown names and views are rejected
+     * with IllegalArgumentException.
+     */
+    public static Optional<ContributorFields> parse(String view, String fields) {
+        if (fields != null && !fields.isBlank()) {
+            List<String> names = new ArrayList<>();
+            for (String field : fields.split(",")) {
+                String name = field.trim();
+                if (!FIELDS.containsKey(name)) {
+                    throw new IllegalArgumentException("Unknown contributor field: " + name);
+                }
+                if (!names.contains(name)) {
+                    names.add(name);
+                }
+            }
+            return Optional.of(new ContributorFields(List.copyOf(names)));
+        }
+        if (view == null || view.isBlank() || view.equals("full")) {
+            return Optional.empty();
+        }
+        if (view.equals(COMPACT_VIEW)) {
+            return Optional.of(new ContributorFields(COMPACT_FIELDS));
+        }
+        throw new IllegalArgumentException("Unknown contributor view: " + view);
+    }
+
+    /**
+     * The contributor's fields in this fieldset, nulls are left out
+     */
+    public Map<String, Object> project(Contributor contributor) {
+        Map<String, Object> projected = new LinkedHashMap<>(names.size() * 2);
+        for (String name : names) {
+            Object value = FIELDS.get(name).apply(contributor);
+            if (value != null) {
+                projected.put(name, value);
+            }
+        }
+        return projected;
+    }
+
+    public List<Map<String, Object>> project(List<Contributor> contributors) {
+        List<Map<String, Object>> projected = new ArrayList<>(contributors.size());
+        for (Contributor contributor : contributors) {
+            projected.add(project(contributor));
+        }
+        return projected;
+    }
+
+    /**
+     * Tells apart the representations of the same ranking, for ETags
+     */
+    public String tag() {
+        return Integer.toHexString(names.hashCode());
+    }
+}
@@ -0,0 +1,39 @@
+package cx.flamingo.analysis.model;
+
+/**
+ * Point in time by which some work must be done, passed down from a request to the calls
+ * it makes. NONE never expires.
+ */
+public final class Deadline {
+
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private final long expiresAt;
+
+    private Deadline(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * A deadline timeoutMs from now, NONE if timeoutMs isn't positive
+     */
+    public static Deadline after(long timeoutMs) {
+        return timeoutMs > 0 ? new Deadline(System.currentTimeMillis() + timeoutMs) : NONE;
+    }
+
+    public boolean isUnbounded() {
+        return expiresAt == Long.MAX_VALUE;
+    }
+
+    public boolean isExpired() {
+        return !isUnbounded() && System.currentTimeMillis() >= expiresAt;
+    }
+
+    public long remainingMs() {
+        return isUnbounded() ? Long.MAX_VALUE : Math.max(0, expiresAt - System.currentTimeMillis());
+    }
+
+    public Deadline extendedBy(long ms) {
+        return isUnbounded() ? NONE : new Deadline(expiresAt + ms);
+    }
+}
@@ -0,0 +1,40 @@
+package cx.flamingo.analysis.model;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * State of a bulk export job, as polled by the client. Updated by the job's thread, which
+ * saves it to the cache after each change.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportJob {
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private String id;
+    private volatile Status status;
+    private int filesTotal;
+    private volatile int filesCompleted;
+    // Files left empty because their ranking couldn't be computed
+    private volatile int filesFailed;
+    private Instant submittedAt;
+    private volatile Instant completedAt;
+    // When the artifact is deleted, set once the job is done
+    private volatile Instant expiresAt;
+    private volatile long sizeBytes;
+    // Number of cache entries the zip is stored in, set once the job is done
+    private volatile int artifactChunks;
+    private volatile String error;
+}
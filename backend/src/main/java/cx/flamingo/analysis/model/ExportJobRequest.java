@@ -0,0 +1,29 @@
+package cx.flamingo.analysis.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A bulk export: one CSV per language and region, with the filters of /api/contributors/search
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportJobRequest {
+    // Every language if empty
+    private List<String> languageIds;
+    // One file per region, or a single one for the filters below if empty and allRegions isn't set
+    private List<String> regionIds;
+    private boolean allRegions;
+    private String cityId;
+    private String stateId;
+    private String teamId;
+    // At most leaderboard.max.depth
+    @Builder.Default
+    private int maxResults = 50;
+}
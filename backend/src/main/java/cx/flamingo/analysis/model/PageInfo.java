@@ -0,0 +1,27 @@
+package cx.flamingo.analysis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Position of a page in a ranking. A client paging through a ranking can tell from the
+ * generation and insert time whether it was refreshed between two pages, a refresh within a
+ * generation replaces the ranking in place and only changes its insert time.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageInfo {
+    private int offset;
+    private int limit;
+    // Number of contributors in the whole ranking, null while it may go on past the pages computed
+    private Integer total;
+    private long generation;
+    // Insert time of the ranking in ms, null for a partial ranking that wasn't cached
+    private Long insertTime;
+    // Offset of the next page, null on the last page or at the deepest page allowed
+    private Integer nextOffset;
+}
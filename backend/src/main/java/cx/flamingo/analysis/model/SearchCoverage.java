@@ -0,0 +1,18 @@
+package cx.flamingo.analysis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * How much of a search's target cities a partial result was merged from
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchCoverage {
+    private int citiesCompleted;
+    private int citiesTotal;
+}
@@ -0,0 +1,25 @@
+package cx.flamingo.analysis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One contributor search of a batch, with the same filters as /api/contributors/search
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchQuery {
+    // Key of the query's result in the batch response, its index if not set
+    private String id;
+    private String cityId;
+    private String regionId;
+    private String stateId;
+    private String teamId;
+    private String languageId;
+    @Builder.Default
+    private int maxResults = 15;
+}
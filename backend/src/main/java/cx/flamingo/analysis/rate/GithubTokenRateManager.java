@@ -18,6 +18,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import cx.flamingo.analysis.exception.DeadlineExceededException;
+import cx.flamingo.analysis.model.Deadline;
 import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -61,6 +63,13 @@ public class GithubTokenRateManager {
 
     boolean alreadyInitialized = false;
 
+    private static void checkWaitWithin(Deadline deadline, long waitSeconds) {
+        if (waitSeconds * 1000 > deadline.remainingMs()) {
+            throw new DeadlineExceededException(String.format(
+                    "No GitHub token available for %d seconds, past the deadline", waitSeconds));
+        }
+    }
+
     private String formatResetTime(Long resetTimeSeconds) {
         if (resetTimeSeconds == null) {
             return "N/A";
@@ -132,6 +141,14 @@ public class GithubTokenRateManager {
      * @return WebClient with optimal rate limit status
      */
     public Pair<WebClient, GithubToken> getBestAvailableClient() {
+        return getBestAvailableClient(Deadline.NONE);
+    }
+
+    /**
+     * Same as above, but fails with DeadlineExceededException instead of waiting for a
+     * token past the deadline
+     */
+    public Pair<WebClient, GithubToken> getBestAvailableClient(Deadline deadline) {
         WebClient bestClient = null;
         GithubToken bestToken = null;
         int maxRemaining = -1;
@@ -182,9 +199,10 @@ public class GithubTokenRateManager {
             long waitTime = earliestSecondaryReset - now;
             if (waitTime > 0) {
                 log.info("All tokens under secondary rate limit. Waiting {} seconds until first token available", waitTime);
+                checkWaitWithin(deadline, waitTime);
                 try {
                     Thread.sleep(waitTime * 1000);
-                    return getBestAvailableClient();
+                    return getBestAvailableClient(deadline);
                 } catch (InterruptedException e) {
                     log.error("Sleep interrupted while waiting for secondary rate limit", e);
                     Thread.currentThread().interrupt();
@@ -198,10 +216,11 @@ public class GithubTokenRateManager {
             if (waitTime > 0) {
                 log.info("All tokens exhausted. Waiting {} seconds until first token refresh at {}", 
                     waitTime, formatResetTime(earliestReset));
+                checkWaitWithin(deadline, waitTime);
                 try {
                     Thread.sleep(waitTime * 1000);
                     initializeRateLimits();
-                    return getBestAvailableClient();
+                    return getBestAvailableClient(deadline);
                 } catch (InterruptedException e) {
                     log.error("Sleep interrupted while waiting for token refresh", e);
                     Thread.currentThread().interrupt();
@@ -214,10 +233,11 @@ public class GithubTokenRateManager {
             long waitTime = bestToken.getSecondsUntilReset();
             if (waitTime > 0) {
                 log.info("Best token needs to wait {} seconds until rate limit reset", waitTime);
+                checkWaitWithin(deadline, waitTime);
                 try {
                     Thread.sleep(waitTime * 1000);
                     initializeRateLimits();
-                    return getBestAvailableClient();
+                    return getBestAvailableClient(deadline);
                 } catch (InterruptedException e) {
                     log.error("Sleep interrupted while waiting for token reset", e);
                     Thread.currentThread().interrupt();
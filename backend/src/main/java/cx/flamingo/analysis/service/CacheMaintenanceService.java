@@ -0,0 +1,70 @@
+package cx.flamingo.analysis.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import cx.flamingo.analysis.cache.CacheServiceAbs;
+import cx.flamingo.analysis.cache.model.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Periodically compacts the cache key space and publishes its size as gauges.
+ * Runs wherever scheduling is enabled, i.e. in the cache-updater.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CacheMaintenanceService {
+
+    private final CacheServiceAbs cacheService;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, CacheStats> lastStats = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("cache.memory.used", cacheService, cache -> {
+            Long usedMemory = cache.getUsedMemoryBytes();
+            return usedMemory != null ? usedMemory : Double.NaN;
+        })
+                .description("Memory used by the cache backend")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${cache.compaction.interval.ms:3600000}",
+            fixedDelayString = "${cache.compaction.interval.ms:3600000}")
+    void compactCache() {
+        log.info("Starting cache compaction...");
+        Map<String, CacheStats> stats = cacheService.compact();
+        stats.forEach((cachePath, pathStats) -> {
+            if (lastStats.put(cachePath, pathStats) == null) {
+                registerGauges(cachePath);
+            }
+        });
+        log.info("Cache compaction completed for {} cache paths", stats.size());
+    }
+
+    private void registerGauges(String cachePath) {
+        Gauge.builder("cache.keys", lastStats, stats -> stats.get(cachePath).getKeys())
+                .description("Number of cache entries per cache path")
+                .tag("path", cachePath)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", lastStats, stats -> stats.get(cachePath).getBytes())
+                .description("Size of the cache entries per cache path")
+                .tag("path", cachePath)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("cache.orphans.removed", lastStats, stats -> stats.get(cachePath).getOrphansRemoved())
+                .description("Orphaned keys removed by the last compaction per cache path")
+                .tag("path", cachePath)
+                .register(meterRegistry);
+    }
+}
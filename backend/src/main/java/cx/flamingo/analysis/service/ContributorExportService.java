@@ -0,0 +1,141 @@
+package cx.flamingo.analysis.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.stereotype.Service;
+
+import cx.flamingo.analysis.model.City;
+import cx.flamingo.analysis.model.Contributor;
+import cx.flamingo.analysis.model.Language;
+import cx.flamingo.analysis.model.SocialLink;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Writes contributor rankings as CSV, for the export endpoint and the export jobs
+ */
+@Service
+@RequiredArgsConstructor
+public class ContributorExportService {
+
+    public static final int CSV_BUFFER_SIZE = 8192;
+
+    private static final String MLG_BASE_URL = "https://www.mlg.soccer";
+    private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader("Rank", "First Name", "Last Name", "City", "State", "MLG URL", "GitHub URL", "Email",
+                    "Twitter", "LinkedIn")
+            .build();
+
+    private final CityService cityService;
+
+    public static Writer csvWriter(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), CSV_BUFFER_SIZE);
+    }
+
+    /**
+     * Writes the contributors in rank order, with the header. The writer is flushed, not
+     * closed, so several files can be written to one stream.
+     */
+    public void writeCsv(Writer writer, List<Contributor> contributors, Language language) throws IOException {
+        CSVPrinter csvPrinter = new CSVPrinter(writer, CSV_FORMAT);
+        int rank = 1;
+        for (Contributor contributor : contributors) {
+            printContributor(csvPrinter, rank++, contributor, language);
+        }
+        csvPrinter.flush();
+    }
+
+    private void printContributor(CSVPrinter csvPrinter, int rank, Contributor contributor, Language language)
+            throws IOException {
+        String[] nameParts = (contributor.getName() != null ? contributor.getName() : "Unknown Unknown").split(" ", 2);
+        String firstName = nameParts[0];
+        String lastName = nameParts.length > 1 ? nameParts[1] : "";
+        
+        String cityName = contributor.getCity() != null ? contributor.getCity().getName() : "";
+        String stateName = contributor.getCity() != null && contributor.getCity().getState() != null ? 
+            contributor.getCity().getState().getName() : "";
+        String mlgUrl = "";
+        if (contributor.getCity() != null) {
+            mlgUrl = String.format("%s/?languageId=%s&cityId=%s", 
+                MLG_BASE_URL, 
+                language.getId(),
+                contributor.getCity().getId()
+            );
+        }
+        
+        // Initialize social URLs
+        String githubUrl = "";
+        String emailUrl = "";
+        String twitterUrl = "";
+        String linkedinUrl = "";
+        
+        // Extract social URLs
+        if (contributor.getSocialLinks() != null) {
+            for (SocialLink link : contributor.getSocialLinks()) {
+                switch (link.getPlatform().toLowerCase()) {
+                    case "github":
+                        githubUrl = link.getUrl();
+                        break;
+                    case "email":
+                        emailUrl = link.getUrl().replace("mailto:", "");
+                        break;
+                    case "twitter":
+                        twitterUrl = link.getUrl();
+                        break;
+                    case "linkedin":
+                        linkedinUrl = link.getUrl();
+                        break;
+                }
+            }
+        }
+
+        csvPrinter.printRecord(
+            rank,
+            firstName,
+            lastName,
+            cityName,
+            stateName,
+            mlgUrl,
+            githubUrl,
+            emailUrl,
+            twitterUrl,
+            linkedinUrl
+        );
+    }
+
+    /**
+     * Name of the CSV file of a search, by language, location and date
+     */
+    public String exportFilename(String cityId, String regionId, String stateId, Language language) {
+        // Get the current date
+        String dateStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+        String languageName = language.getName().toLowerCase();
+        
+        // Build location part of filename
+        String locationPart = "all";
+        if (cityId != null) {
+            City city = cityService.getCityById(cityId);
+            locationPart = city != null ? city.getId() : "all";
+        } else if (stateId != null) {
+            locationPart = stateId;
+        } else if (regionId != null) {
+            locationPart = regionId;
+        }
+
+        // Construct filename
+        return String.format("mlg-contributors-%s-%s-%s.csv", 
+            languageName,
+            locationPart,
+            dateStr
+        );
+    }
+}
@@ -0,0 +1,345 @@
+package cx.flamingo.analysis.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import cx.flamingo.analysis.cache.CacheServiceAbs;
+import cx.flamingo.analysis.cache.model.Leaderboard;
+import cx.flamingo.analysis.exception.DeadlineExceededException;
+import cx.flamingo.analysis.exception.SearchRejectedException;
+import cx.flamingo.analysis.model.City;
+import cx.flamingo.analysis.model.Contributor;
+import cx.flamingo.analysis.model.Deadline;
+import cx.flamingo.analysis.model.Language;
+import cx.flamingo.analysis.model.SearchCoverage;
+import cx.flamingo.analysis.model.SearchQuery;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Contributor search shared by the servlet and reactive controllers. Looks up the query's
+ * cached ranking, then tries to merge it from the cached per-city leaderboards, and only
+ * then falls back to fetching from GitHub, if admission control lets it. A rejected search is
+ * answered with the query's cached ranking even if it is too shallow, or the merged city
+ * leaderboards, and otherwise fails with SearchRejectedException.
+ *
+ * A search with a deadline answers with the top contributors of the cities done so far once
+ * it passes, flagged partial. The fetch goes on in the background, bounded by
+ * search.deadline.background.ms, and caches the full ranking when done.
+ */
+@Slf4j
+@Service
+public class ContributorSearchService {
+
+    /**
+     * A search's ranking, and for a partial one how many of its cities it covers
+     */
+    public record SearchResult(Leaderboard ranking, SearchCoverage coverage) {
+
+        public boolean isPartial() {
+            return coverage != null;
+        }
+    }
+
+    /**
+     * What a search's supplier hands back besides its result, the cache catches its exceptions
+     */
+    private static class Attempt {
+        private final AtomicReference<SearchRejectedException> rejection = new AtomicReference<>();
+        private final AtomicReference<SearchResult> partial = new AtomicReference<>();
+    }
+
+    /**
+     * Keeps the latest progress snapshot of a fetch, to answer with when its deadline passes
+     */
+    private static class Progress implements Consumer<List<Contributor>> {
+        private final Consumer<List<Contributor>> onProgress;
+        private List<Contributor> latest = List.of();
+        private int citiesCompleted;
+
+        private Progress(Consumer<List<Contributor>> onProgress) {
+            this.onProgress = onProgress;
+        }
+
+        @Override
+        public synchronized void accept(List<Contributor> contributors) {
+            latest = contributors;
+            citiesCompleted++;
+            if (onProgress != null) {
+                onProgress.accept(contributors);
+            }
+        }
+
+        private synchronized SearchResult toResult(int depth, int citiesTotal) {
+            return new SearchResult(Leaderboard.builder()
+                    .contributors(latest)
+                    .depth(depth)
+                    .build(), new SearchCoverage(citiesCompleted, citiesTotal));
+        }
+    }
+
+    private final GithubService githubService;
+    private final CacheServiceAbs cacheService;
+    private final LanguageService languageService;
+    private final LeaderboardService leaderboardService;
+    private final SearchAdmissionService searchAdmissionService;
+    private final ThreadPoolExecutor contributorSearchExecutor;
+    private final ThreadPoolExecutor searchRequestExecutor;
+
+    @Value("${search.deadline.ms:20000}")
+    private long defaultDeadlineMs;
+
+    @Value("${search.deadline.max.ms:60000}")
+    private long maxDeadlineMs;
+
+    @Value("${search.deadline.background.ms:600000}")
+    private long backgroundDeadlineMs;
+
+    public ContributorSearchService(GithubService githubService, CacheServiceAbs cacheService,
+            LanguageService languageService, LeaderboardService leaderboardService,
+            SearchAdmissionService searchAdmissionService,
+            @Qualifier("contributorSearchExecutor") ThreadPoolExecutor contributorSearchExecutor,
+            @Qualifier("searchRequestExecutor") ThreadPoolExecutor searchRequestExecutor) {
+        this.githubService = githubService;
+        this.cacheService = cacheService;
+        this.languageService = languageService;
+        this.leaderboardService = leaderboardService;
+        this.searchAdmissionService = searchAdmissionService;
+        this.contributorSearchExecutor = contributorSearchExecutor;
+        this.searchRequestExecutor = searchRequestExecutor;
+    }
+
+    /**
+     * The deadline of a search asking for timeoutMs, the configured default if not set and at
+     * most search.deadline.max.ms. No deadline if search.deadline.ms is 0 and none is asked for.
+     */
+    public Deadline deadline(Long timeoutMs) {
+        if (timeoutMs == null) {
+            return Deadline.after(Math.min(defaultDeadlineMs, maxDeadlineMs));
+        }
+        return Deadline.after(Math.max(1, Math.min(timeoutMs, maxDeadlineMs)));
+    }
+
+    /**
+     * The query's whole ranking, at least maxResults deep unless there are fewer contributors.
+     * clientId is who admission control charges for a fetch from GitHub. onProgress, if set,
+     * gets the top contributors so far while cities are fetched from GitHub.
+     */
+    public Optional<Leaderboard> findRanking(String cityId, String regionId, String stateId, String teamId,
+            String languageId, int maxResults, GithubService.GithubApiPriority priority, String clientId,
+            Consumer<List<Contributor>> onProgress) {
+        return search(cityId, regionId, stateId, teamId, languageId, maxResults, priority, clientId, onProgress,
+                Deadline.NONE).map(SearchResult::ranking);
+    }
+
+    /**
+     * Same as above, answering with a partial result if the ranking isn't done by the deadline
+     */
+    public Optional<SearchResult> search(String cityId, String regionId, String stateId, String teamId,
+            String languageId, int maxResults, GithubService.GithubApiPriority priority, String clientId,
+            Consumer<List<Contributor>> onProgress, Deadline deadline) {
+        Attempt attempt = new Attempt();
+        Optional<Leaderboard> ranking = cacheService.getHttpRanking(cityId, regionId, stateId, teamId, languageId,
+                maxResults, rankingSupplier(cityId, regionId, stateId, teamId, languageId, priority, clientId,
+                        onProgress, deadline, attempt), deadline);
+        if (ranking.isPresent()) {
+            return ranking.map(complete -> new SearchResult(complete, null));
+        }
+        if (attempt.partial.get() != null) {
+            return Optional.of(attempt.partial.get());
+        }
+        return fallback(cityId, regionId, stateId, teamId, languageId, maxResults, attempt.rejection.get())
+                .map(complete -> new SearchResult(complete, null));
+    }
+
+    /**
+     * Same as above on the search request executor, for searches a request runs side by side
+     * or waits on while it streams their progress. onProgress is called on the GitHub pool
+     * threads, it must not block.
+     */
+    public CompletableFuture<Optional<SearchResult>> searchAsync(String cityId, String regionId, String stateId,
+            String teamId, String languageId, int maxResults, GithubService.GithubApiPriority priority,
+            String clientId, Consumer<List<Contributor>> onProgress, Deadline deadline) {
+        return CompletableFuture.supplyAsync(() -> search(cityId, regionId, stateId, teamId, languageId, maxResults,
+                priority, clientId, onProgress, deadline), searchRequestExecutor);
+    }
+
+    /**
+     * Same as above for the reactive controllers. A cached ranking is read without blocking,
+     * everything else runs on a bounded elastic thread.
+     */
+    public Mono<SearchResult> searchReactive(String cityId, String regionId, String stateId, String teamId,
+            String languageId, int maxResults, GithubService.GithubApiPriority priority, String clientId,
+            Deadline deadline) {
+        Attempt attempt = new Attempt();
+        return cacheService.getHttpRankingReactive(cityId, regionId, stateId, teamId, languageId, maxResults,
+                rankingSupplier(cityId, regionId, stateId, teamId, languageId, priority, clientId, null, deadline,
+                        attempt), deadline)
+                .map(complete -> new SearchResult(complete, null))
+                .switchIfEmpty(Mono.fromCallable(() -> attempt.partial.get() != null ? attempt.partial.get()
+                        : fallback(cityId, regionId, stateId, teamId, languageId, maxResults,
+                                attempt.rejection.get())
+                                .map(complete -> new SearchResult(complete, null))
+                                .orElse(null))
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    /**
+     * Refreshes in the background a query's ranking that was read without the regular search,
+     * such as by a batch, if it is due
+     */
+    public void refreshIfDue(SearchQuery query, Leaderboard cachedRanking, GithubService.GithubApiPriority priority,
+            String clientId) {
+        cacheService.refreshHttpRankingIfDue(query, cachedRanking, rankingSupplier(query.getCityId(),
+                query.getRegionId(), query.getStateId(), query.getTeamId(), query.getLanguageId(), priority,
+                clientId, null, Deadline.NONE, new Attempt()));
+    }
+
+    /**
+     * Computes a ranking, fetching from GitHub only once admitted. The cache catches the
+     * supplier's exceptions, so a rejection or a partial result is handed back through attempt.
+     */
+    private IntFunction<List<Contributor>> rankingSupplier(String cityId, String regionId, String stateId,
+            String teamId, String languageId, GithubService.GithubApiPriority priority, String clientId,
+            Consumer<List<Contributor>> onProgress, Deadline deadline, Attempt attempt) {
+        return depth -> {
+            List<City> targetCities = githubService.getTargetCities(cityId, regionId, stateId, teamId);
+            Language selectedLanguage = resolveLanguage(languageId);
+
+            Optional<List<Contributor>> cachedContributors = leaderboardService.getTopContributorsFromCache(
+                    targetCities, selectedLanguage, depth);
+            if (cachedContributors.isPresent()) {
+                return cachedContributors.get();
+            }
+            if (!deadline.isUnbounded()) {
+                return fetchWithin(cityId, regionId, stateId, teamId, languageId, targetCities, selectedLanguage,
+                        depth, priority, clientId, onProgress, deadline, attempt);
+            }
+            try (SearchAdmissionService.Admission admission = searchAdmissionService.admit(clientId,
+                    targetCities.size())) {
+                return githubService.getTopContributorsIn(targetCities, selectedLanguage, depth, priority,
+                        onProgress);
+            } catch (SearchRejectedException e) {
+                attempt.rejection.set(e);
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Fetches from GitHub on the search executor and waits until the deadline. Past it, the
+     * top contributors so far become the partial result, and the fetch goes on to cache the
+     * full ranking. Admission is held until the fetch is done, not just the wait.
+     */
+    private List<Contributor> fetchWithin(String cityId, String regionId, String stateId, String teamId,
+            String languageId, List<City> targetCities, Language language, int depth,
+            GithubService.GithubApiPriority priority, String clientId, Consumer<List<Contributor>> onProgress,
+            Deadline deadline, Attempt attempt) {
+        SearchAdmissionService.Admission admission;
+        try {
+            admission = searchAdmissionService.admit(clientId, targetCities.size());
+        } catch (SearchRejectedException e) {
+            attempt.rejection.set(e);
+            throw e;
+        }
+
+        Progress progress = new Progress(onProgress);
+        CompletableFuture<List<Contributor>> fetch;
+        try {
+            fetch = CompletableFuture.supplyAsync(() -> githubService.getTopContributorsIn(targetCities, language,
+                    depth, priority, progress, deadline.extendedBy(backgroundDeadlineMs)), contributorSearchExecutor);
+        } catch (RuntimeException e) {
+            admission.close();
+            throw e;
+        }
+        fetch.whenComplete((contributors, e) -> admission.close());
+
+        try {
+            return fetch.get(deadline.remainingMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            fetch.thenAccept(contributors -> cacheService.getHttpRanking(cityId, regionId, stateId, teamId,
+                    languageId, depth, fetchDepth -> contributors));
+            SearchResult partial = progress.toResult(depth, targetCities.size());
+            attempt.partial.set(partial);
+            log.info("Search deadline passed with {} of {} cities done, fetching the rest in the background",
+                    partial.coverage().getCitiesCompleted(), targetCities.size());
+            throw new DeadlineExceededException("Search deadline passed");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for contributors", e);
+        }
+    }
+
+    /**
+     * What is left when the ranking couldn't be computed: after a rejection, the query's
+     * cached ranking however deep, then the merged city leaderboards
+     */
+    private Optional<Leaderboard> fallback(String cityId, String regionId, String stateId, String teamId,
+            String languageId, int maxResults, SearchRejectedException rejection) {
+        if (rejection != null) {
+            Optional<Leaderboard> cachedRanking = cacheService.getCachedHttpRankings(List.of(SearchQuery.builder()
+                    .cityId(cityId)
+                    .regionId(regionId)
+                    .stateId(stateId)
+                    .teamId(teamId)
+                    .languageId(languageId)
+                    .build())).get(0);
+            if (cachedRanking.isPresent()) {
+                searchAdmissionService.recordFallback("cached_ranking");
+                return cachedRanking;
+            }
+        }
+
+        Optional<Leaderboard> merged = mergeCityLeaderboards(cityId, regionId, stateId, teamId, languageId,
+                maxResults);
+        if (rejection == null) {
+            return merged;
+        }
+        if (merged.isPresent()) {
+            searchAdmissionService.recordFallback("city_leaderboards");
+            return merged;
+        }
+        throw rejection;
+    }
+
+    /**
+     * The read-only cache never calls the supplier, but can still merge cached city leaderboards
+     */
+    private Optional<Leaderboard> mergeCityLeaderboards(String cityId, String regionId, String stateId,
+            String teamId, String languageId, int maxResults) {
+        List<City> targetCities = githubService.getTargetCities(cityId, regionId, stateId, teamId);
+        return leaderboardService.getTopContributorsFromCache(targetCities, resolveLanguage(languageId), maxResults)
+                .map(contributors -> Leaderboard.builder()
+                        .contributors(contributors)
+                        .depth(maxResults)
+                        .build());
+    }
+
+    public Language resolveLanguage(String languageId) {
+        Language selectedLanguage = languageId != null ? languageService.getLanguageById(languageId)
+                : languageService.getDefaultLanguage();
+        if (selectedLanguage == null) {
+            log.warn("Language not found with ID: {}, using default language", languageId);
+            selectedLanguage = languageService.getDefaultLanguage();
+        }
+        return selectedLanguage;
+    }
+}
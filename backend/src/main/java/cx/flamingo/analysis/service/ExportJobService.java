@@ -0,0 +1,337 @@
+package cx.flamingo.analysis.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import cx.flamingo.analysis.cache.CacheServiceAbs;
+import cx.flamingo.analysis.cache.model.Leaderboard;
+import cx.flamingo.analysis.model.Contributor;
+import cx.flamingo.analysis.model.ExportJob;
+import cx.flamingo.analysis.model.ExportJobRequest;
+import cx.flamingo.analysis.model.Language;
+import cx.flamingo.analysis.model.Region;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk exports run as jobs on their own bounded executor, off the request threads. A job
+ * writes one CSV per language and region into a zip, reading each ranking
+ * through the regular search at low priority. Rankings are at most leaderboard.max.depth deep,
+ * the depth the cache-updater keeps every ranking at, so they are served from the cache when
+ * there. Fetches from GitHub are charged to admission control under the job's own client id,
+ * and a rejected one falls back to what the cache has.
+ *
+ * Jobs and their zips are kept in the cache, shared by the backend replicas, so a status poll
+ * or download can reach any of them. Both expire export.jobs.ttl.ms after the job is done. A
+ * job whose instance stops before it is done is left queued or running until it expires.
+ *
+ * A zip holds at most export.jobs.max.files CSVs of leaderboard.max.depth rows each, about
+ * 10 MB before compression at the defaults. It is written to the cache in ARTIFACT_CHUNK_BYTES
+ * chunks as it is compressed and downloaded chunk by chunk, so at most one chunk is on the heap.
+ */
+@Slf4j
+@Service
+public class ExportJobService {
+
+    private static final String ARTIFACT_SUFFIX = ".zip";
+    private static final String CLIENT_PREFIX = "export-job:";
+    private static final int ARTIFACT_CHUNK_BYTES = 1024 * 1024;
+
+    private final ContributorSearchService contributorSearchService;
+    private final CacheServiceAbs cacheService;
+    private final ContributorExportService contributorExportService;
+    private final LanguageService languageService;
+    private final RegionService regionService;
+    private final ThreadPoolExecutor exportJobExecutor;
+
+    @Value("${export.jobs.ttl.ms:86400000}")
+    private long ttlMs;
+
+    @Value("${export.jobs.max.files:1000}")
+    private int maxFiles;
+
+    @Value("${leaderboard.max.depth:50}")
+    private int maxResults;
+
+    public ExportJobService(ContributorSearchService contributorSearchService, CacheServiceAbs cacheService,
+            ContributorExportService contributorExportService, LanguageService languageService,
+            RegionService regionService, @Qualifier("exportJobExecutor") ThreadPoolExecutor exportJobExecutor) {
+        this.contributorSearchService = contributorSearchService;
+        this.cacheService = cacheService;
+        this.contributorExportService = contributorExportService;
+        this.languageService = languageService;
+        this.regionService = regionService;
+        this.exportJobExecutor = exportJobExecutor;
+    }
+
+    /**
+     * Queues a job. Invalid requests fail with IllegalArgumentException, a full queue with
+     * RejectedExecutionException.
+     */
+    public ExportJob submit(ExportJobRequest request) {
+        List<Language> languages = resolveLanguages(request.getLanguageIds());
+        List<String> regionIds = resolveRegionIds(request);
+        int filesTotal = languages.size() * regionIds.size();
+        if (filesTotal > maxFiles) {
+            throw new IllegalArgumentException(String.format("An export can have at most %d files, this one has %d",
+                    maxFiles, filesTotal));
+        }
+        if (request.getMaxResults() <= 0 || request.getMaxResults() > maxResults) {
+            throw new IllegalArgumentException(String.format("maxResults must be between 1 and %d", maxResults));
+        }
+
+        ExportJob job = ExportJob.builder()
+                .id(UUID.randomUUID().toString())
+                .status(ExportJob.Status.QUEUED)
+                .filesTotal(filesTotal)
+                .submittedAt(Instant.now())
+                .build();
+        cacheService.putExportJob(job);
+        try {
+            exportJobExecutor.execute(() -> run(job, request, languages, regionIds));
+        } catch (RejectedExecutionException e) {
+            cacheService.invalidateExportJob(job);
+            throw e;
+        }
+        log.info("Queued export job {} with {} files", job.getId(), filesTotal);
+        return job;
+    }
+
+    /**
+     * The job as last saved by the instance running it. Backends without TTLs keep expired
+     * jobs, they are removed here.
+     */
+    public Optional<ExportJob> getJob(String id) {
+        Optional<ExportJob> job = cacheService.getExportJob(id);
+        if (job.isPresent() && job.get().getExpiresAt() != null && job.get().getExpiresAt().isBefore(Instant.now())) {
+            cacheService.invalidateExportJob(job.get());
+            return Optional.empty();
+        }
+        return job;
+    }
+
+    /**
+     * The job's zip, read from the cache a chunk at a time, only once the job is done and while
+     * its zip is still there
+     */
+    public Optional<InputStream> openArtifact(ExportJob job) {
+        if (job.getStatus() != ExportJob.Status.DONE) {
+            return Optional.empty();
+        }
+        return cacheService.getExportArtifactChunk(job.getId(), 0)
+                .map(first -> new ArtifactInputStream(job, first));
+    }
+
+    public String artifactFilename(ExportJob job) {
+        return String.format("mlg-contributors-export-%s%s", job.getId(), ARTIFACT_SUFFIX);
+    }
+
+    private void run(ExportJob job, ExportJobRequest request, List<Language> languages, List<String> regionIds) {
+        job.setStatus(ExportJob.Status.RUNNING);
+        cacheService.putExportJob(job);
+        // Rankings are compressed as soon as they are read, only one is held uncompressed at a time
+        ArtifactOutputStream artifact = new ArtifactOutputStream(job.getId());
+        try {
+            try (ZipOutputStream zip = new ZipOutputStream(artifact);
+                    Writer writer = ContributorExportService.csvWriter(zip)) {
+                for (Language language : languages) {
+                    for (String regionId : regionIds) {
+                        writeEntry(job, request, language, regionId, zip, writer);
+                        cacheService.putExportJob(job);
+                    }
+                }
+            }
+            job.setSizeBytes(artifact.size);
+            job.setArtifactChunks(artifact.chunks);
+            complete(job, ExportJob.Status.DONE);
+            log.info("Export job {} done, {} files in {} bytes", job.getId(), job.getFilesCompleted(),
+                    job.getSizeBytes());
+        } catch (Exception e) {
+            log.error("Export job {} failed: {}", job.getId(), e.getMessage(), e);
+            cacheService.invalidateExportArtifact(job.getId(), artifact.chunks);
+            job.setError(e.getMessage());
+            complete(job, ExportJob.Status.FAILED);
+        }
+    }
+
+    /**
+     * The job is saved once its zip is, a client seeing the job done can download it
+     */
+    private void complete(ExportJob job, ExportJob.Status status) {
+        Instant completedAt = Instant.now();
+        job.setCompletedAt(completedAt);
+        job.setExpiresAt(completedAt.plusMillis(ttlMs));
+        job.setStatus(status);
+        cacheService.putExportJob(job);
+    }
+
+    private void writeEntry(ExportJob job, ExportJobRequest request, Language language, String regionId,
+            ZipOutputStream zip, Writer writer) throws IOException {
+        List<Contributor> contributors = List.of();
+        try {
+            Optional<Leaderboard> ranking = contributorSearchService.findRanking(request.getCityId(), regionId,
+                    request.getStateId(), request.getTeamId(), language.getId(), request.getMaxResults(),
+                    GithubService.GithubApiPriority.Low, CLIENT_PREFIX + job.getId(), null);
+            if (ranking.isPresent()) {
+                contributors = ranking.get().top(request.getMaxResults());
+            } else {
+                job.setFilesFailed(job.getFilesFailed() + 1);
+            }
+        } catch (Exception e) {
+            log.warn("Export job {} failed to read {} contributors for region {}: {}", job.getId(),
+                    language.getName(), regionId, e.getMessage());
+            job.setFilesFailed(job.getFilesFailed() + 1);
+        }
+
+        zip.putNextEntry(new ZipEntry(contributorExportService.exportFilename(request.getCityId(), regionId,
+                request.getStateId(), language)));
+        contributorExportService.writeCsv(writer, contributors, language);
+        zip.closeEntry();
+        job.setFilesCompleted(job.getFilesCompleted() + 1);
+    }
+
+    /**
+     * Writes the zip to the cache a chunk at a time, as it is compressed
+     */
+    private class ArtifactOutputStream extends OutputStream {
+        private final String id;
+        private final ByteArrayOutputStream chunk = new ByteArrayOutputStream(ARTIFACT_CHUNK_BYTES);
+        private int chunks;
+        private long size;
+        private boolean closed;
+
+        private ArtifactOutputStream(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public void write(int b) {
+            chunk.write(b);
+            size++;
+            if (chunk.size() >= ARTIFACT_CHUNK_BYTES) {
+                putChunk();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            while (len > 0) {
+                int length = Math.min(len, ARTIFACT_CHUNK_BYTES - chunk.size());
+                chunk.write(b, off, length);
+                size += length;
+                off += length;
+                len -= length;
+                if (chunk.size() >= ARTIFACT_CHUNK_BYTES) {
+                    putChunk();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                putChunk();
+            }
+        }
+
+        private void putChunk() {
+            if (chunk.size() == 0) {
+                return;
+            }
+            cacheService.putExportArtifactChunk(id, chunks++, chunk.toByteArray());
+            chunk.reset();
+        }
+    }
+
+    /**
+     * Reads a job's zip back from the cache, a chunk at a time. A chunk that is gone, expired
+     * or evicted, fails the read rather than ending the zip early.
+     */
+    private class ArtifactInputStream extends InputStream {
+        private final ExportJob job;
+        private ByteArrayInputStream chunk;
+        private int nextChunk = 1;
+
+        private ArtifactInputStream(ExportJob job, byte[] first) {
+            this.job = job;
+            this.chunk = new ByteArrayInputStream(first);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (chunk.available() == 0) {
+                if (nextChunk >= job.getArtifactChunks()) {
+                    return -1;
+                }
+                chunk = new ByteArrayInputStream(cacheService.getExportArtifactChunk(job.getId(), nextChunk)
+                        .orElseThrow(() -> new IOException(String.format("Chunk %d of export job %s is gone",
+                                nextChunk, job.getId()))));
+                nextChunk++;
+            }
+            return chunk.read(b, off, len);
+        }
+    }
+
+    private List<Language> resolveLanguages(List<String> languageIds) {
+        if (languageIds == null || languageIds.isEmpty()) {
+            return languageService.getAllLanguages();
+        }
+        List<Language> languages = new ArrayList<>();
+        for (String languageId : languageIds) {
+            Language language = languageService.getLanguageById(languageId);
+            if (language == null) {
+                throw new IllegalArgumentException("Unknown language: " + languageId);
+            }
+            languages.add(language);
+        }
+        return languages;
+    }
+
+    /**
+     * The regions to write a file for, a single null one when the request's other filters apply
+     */
+    private List<String> resolveRegionIds(ExportJobRequest request) {
+        if (request.isAllRegions()) {
+            return regionService.getAllRegions().stream()
+                    .map(Region::getId)
+                    .toList();
+        }
+        if (request.getRegionIds() == null || request.getRegionIds().isEmpty()) {
+            List<String> single = new ArrayList<>();
+            single.add(null);
+            return single;
+        }
+        for (String regionId : request.getRegionIds()) {
+            if (regionService.getRegionById(regionId) == null) {
+                throw new IllegalArgumentException("Unknown region: " + regionId);
+            }
+        }
+        return request.getRegionIds();
+    }
+}
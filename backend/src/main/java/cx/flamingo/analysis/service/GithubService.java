@@ -10,6 +10,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.javatuples.Pair;
@@ -27,6 +30,8 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 import cx.flamingo.analysis.cache.CacheServiceAbs;
+import cx.flamingo.analysis.cache.model.Leaderboard;
+import cx.flamingo.analysis.exception.DeadlineExceededException;
 import cx.flamingo.analysis.exception.GithubGeneralException;
 import cx.flamingo.analysis.exception.GithubRateLimitException;
 import cx.flamingo.analysis.exception.GithubTimeoutException;
@@ -34,6 +39,7 @@ import cx.flamingo.analysis.exception.GithubTooFastException;
 import cx.flamingo.analysis.graphql.GitHubQueryBuilder;
 import cx.flamingo.analysis.model.City;
 import cx.flamingo.analysis.model.Contributor;
+import cx.flamingo.analysis.model.Deadline;
 import cx.flamingo.analysis.model.Language;
 import cx.flamingo.analysis.model.SocialLink;
 import cx.flamingo.analysis.rate.GithubToken;
@@ -44,7 +50,12 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 public class GithubService {
 
+    // Search pages are cached with each user's repositories and contribution calendar
+    // replaced by the totals processUsers needs, stored under this field
+    private static final String PROJECTION_FIELD = "projection";
+
     private Integer githubApiConcurrency;
+    private final boolean projectPages;
 
     private final CacheServiceAbs cacheService;
     private final Gson gson;
@@ -71,7 +82,8 @@ public class GithubService {
             GithubTokenRateManager githubTokenRateManager,
             @Qualifier("contributorsAsyncExecutorLow") ThreadPoolExecutor contributorsAsyncExecutorLow,
             @Qualifier("contributorsAsyncExecutorHigh") ThreadPoolExecutor contributorsAsyncExecutorHigh,
-            @Value("${github.api.concurrency:10}") Integer githubApiConcurrency) {
+            @Value("${github.api.concurrency:10}") Integer githubApiConcurrency,
+            @Value("${github.cache.projection.enabled:true}") boolean projectPages) {
         this.cacheService = cacheService;
         this.gson = new GsonBuilder().create();
         this.cityService = cityService;
@@ -80,18 +92,43 @@ public class GithubService {
         this.contributorsAsyncExecutorLow = contributorsAsyncExecutorLow;
         this.contributorsAsyncExecutorHigh = contributorsAsyncExecutorHigh;
         this.githubApiConcurrency = githubApiConcurrency;
+        this.projectPages = projectPages;
     }
 
     public List<Contributor> getTopContributorsIn(List<City> cities, Language language, int maxResults,
             GithubApiPriority priority) {
+        return getTopContributorsIn(cities, language, maxResults, priority, null);
+    }
+
+    public List<Contributor> getTopContributorsIn(List<City> cities, Language language, int maxResults,
+            GithubApiPriority priority, Consumer<List<Contributor>> onProgress) {
+        return getTopContributorsIn(cities, language, maxResults, priority, onProgress, Deadline.NONE);
+    }
+
+    /**
+     * Same as above, and calls onProgress with the top contributors of the cities done so
+     * far each time a city completes. Calls are serialized, each snapshot is newer than the last.
+     * They run on the shared per-city pool threads, onProgress must hand snapshots off, not block.
+     * No batch is started, page fetched or token waited for past the deadline. If any city
+     * ran out of time, DeadlineExceededException is thrown once the others are done, so an
+     * incomplete ranking is never taken for a complete one.
+     */
+    public List<Contributor> getTopContributorsIn(List<City> cities, Language language, int maxResults,
+            GithubApiPriority priority, Consumer<List<Contributor>> onProgress, Deadline deadline) {
         if (language == null) {
             throw new IllegalArgumentException("Language cannot be null");
         }
 
-        Map<String, Contributor> contributorsByLogin = new HashMap<>();
+        List<List<Contributor>> rankings = new ArrayList<>();
+        List<List<Contributor>> completedRankings = new ArrayList<>();
+        AtomicInteger citiesExpired = new AtomicInteger();
 
         // Process cities in batches
         for (int i = 0; i < cities.size(); i += githubApiConcurrency) {
+            if (deadline.isExpired()) {
+                citiesExpired.addAndGet(cities.size() - i);
+                break;
+            }
             int end = Math.min(i + githubApiConcurrency, cities.size());
             List<City> batch = cities.subList(i, end);
 
@@ -101,11 +138,24 @@ public class GithubService {
                         try {
                             log.info("Fetching {} {} contributors for city: {}", maxResults, language.getName(),
                                     city.getName());
-                            List<Contributor> contributors = getContributorsForCity(city, language, maxResults);
+                            List<Contributor> contributors = getCityLeaderboard(city, language, maxResults,
+                                    deadline);
                             log.info("Found {} {} contributors for city: {}", contributors.size(), language.getName(),
                                     city.getName());
 
+                            if (onProgress != null) {
+                                synchronized (completedRankings) {
+                                    completedRankings.add(contributors);
+                                    onProgress.accept(LeaderboardService.mergeTopContributors(completedRankings,
+                                            maxResults));
+                                }
+                            }
                             return contributors;
+                        } catch (DeadlineExceededException e) {
+                            log.warn("Ran out of time fetching contributors for city {}: {}", city.getName(),
+                                    e.getMessage());
+                            citiesExpired.incrementAndGet();
+                            return new ArrayList<Contributor>();
                         } catch (Exception e) {
                             log.error("Failed to fetch contributors for city {}: {}", city.getName(), e.getMessage());
                             return new ArrayList<Contributor>();
@@ -133,27 +183,55 @@ public class GithubService {
                                 return new ArrayList<Contributor>();
                             }
                         })
-                        .flatMap(List::stream)
-                        .forEach(contributor -> {
-                            // Keep the contributor with the highest score if duplicate
-                            contributorsByLogin.merge(contributor.getLogin(), contributor,
-                                    (existing, newContributor) -> existing.getScore() >= newContributor.getScore()
-                                            ? existing
-                                            : newContributor);
-                        });
+                        .forEach(rankings::add);
             } catch (Exception e) {
                 log.error("Error processing batch: {}", e.getMessage());
             }
         }
 
-        // Sort and limit results
-        return contributorsByLogin.values().stream()
-                .sorted((a, b) -> Double.compare(b.getScore(), a.getScore()))
-                .limit(maxResults)
-                .collect(Collectors.toList());
+        if (citiesExpired.get() > 0) {
+            throw new DeadlineExceededException(String.format("%d of %d cities ran out of time",
+                    citiesExpired.get(), cities.size()));
+        }
+
+        // Merge the per-city rankings, keeping the highest score of duplicates
+        return LeaderboardService.mergeTopContributors(rankings, maxResults);
+    }
+
+    /**
+     * Returns the city's contributors sorted by score, from the materialized per-city
+     * leaderboard when available. The cache swallows the supplier's failures, a passed
+     * deadline is thrown again here.
+     */
+    private List<Contributor> getCityLeaderboard(City city, Language language, int maxResults, Deadline deadline) {
+        AtomicBoolean expired = new AtomicBoolean();
+        List<Contributor> contributors = cacheService.getCityLeaderboard(city, language.getId(), maxResults,
+                depth -> {
+                    try {
+                        return LeaderboardService.sortByScore(getContributorsForCity(city, language, depth,
+                                deadline));
+                    } catch (DeadlineExceededException e) {
+                        expired.set(true);
+                        throw e;
+                    }
+                }, deadline)
+                .map(Leaderboard::getContributors)
+                .orElseGet(ArrayList::new);
+        if (expired.get()) {
+            throw new DeadlineExceededException("Deadline passed while fetching city " + city.getName());
+        }
+        return contributors;
     }
 
     public List<Contributor> getContributorsForCity(City city, Language language, int maxResults) {
+        return getContributorsForCity(city, language, maxResults, Deadline.NONE);
+    }
+
+    /**
+     * Same as above, no page is fetched or retried past the deadline
+     */
+    public List<Contributor> getContributorsForCity(City city, Language language, int maxResults,
+            Deadline deadline) {
         // Input validation
         if (city == null) {
             throw new IllegalArgumentException("City cannot be null");
@@ -173,6 +251,10 @@ public class GithubService {
         int maxRetries = 10;
 
         while (hasNextPage && contributors.size() < maxResults && maxRetries > 0) {
+            if (deadline.isExpired()) {
+                throw new DeadlineExceededException(String.format("Deadline passed before page %d of city %s",
+                        pageCount, city.getName()));
+            }
             log.debug("Fetching page {} for {} contributors in {}",
                     pageCount, language.getName(), city.getName());
 
@@ -183,7 +265,9 @@ public class GithubService {
             JsonObject response = null;
 
             try {
-                response = executeGraphQLQuery(query, language.getName(), pageCount, city);
+                response = executeGraphQLQuery(query, language.getName(), pageCount, city, deadline);
+            } catch (DeadlineExceededException th) {
+                throw th;
             } catch (GithubTimeoutException th) {
                 numberOfUsers = Math.max(1, numberOfUsers / 3);
                 log.warn("Timeout occurred, will reduce the return size to {} users", numberOfUsers);
@@ -240,8 +324,8 @@ public class GithubService {
         return contributors;
     }
 
-    private JsonObject executeGraphQLQuery(String query, String language, int pageNumber, City city)
-            throws GithubTimeoutException, GithubRateLimitException {
+    private JsonObject executeGraphQLQuery(String query, String language, int pageNumber, City city,
+            Deadline deadline) throws GithubTimeoutException, GithubRateLimitException {
         githubTokenRateManager.initializeRateLimits();
         if (log.isDebugEnabled()) {
             log.debug("Raw GraphQL Query:\n{}", query);
@@ -256,7 +340,8 @@ public class GithubService {
 
         return cacheService.getGitHubApiResponse(city, language, pageNumber, () -> {
             try {
-                Pair<WebClient, GithubToken> webClientToGithubToken = githubTokenRateManager.getBestAvailableClient();
+                Pair<WebClient, GithubToken> webClientToGithubToken = githubTokenRateManager
+                        .getBestAvailableClient(deadline);
                 JsonObject response = webClientToGithubToken.getValue0().post()
                         .bodyValue(jsonBody)
                         .retrieve()
@@ -318,7 +403,7 @@ public class GithubService {
                         })
                         .block();
 
-                return response;
+                return projectPages ? projectSearchPage(response) : response;
             } catch (Throwable th) {
                 String errorMessage = th.getMessage();
 
@@ -358,6 +443,92 @@ public class GithubService {
         return query;
     }
 
+    /**
+     * Keeps only what processUsers reads from a search page, so the cached page is a
+     * fraction of the GraphQL response and parses as fast
+     */
+    private JsonObject projectSearchPage(JsonObject response) {
+        if (response == null || !response.has("data") || !response.get("data").isJsonObject()) {
+            return response;
+        }
+        JsonObject data = response.getAsJsonObject("data");
+        if (!data.has("search") || !data.get("search").isJsonObject()) {
+            return response;
+        }
+        JsonObject search = data.getAsJsonObject("search");
+
+        JsonArray users = new JsonArray();
+        for (JsonElement user : search.getAsJsonArray("nodes")) {
+            users.add(user.isJsonObject() ? projectUser(user.getAsJsonObject()) : user);
+        }
+        JsonObject projectedSearch = new JsonObject();
+        for (String field : List.of("userCount", "pageInfo")) {
+            if (search.has(field)) {
+                projectedSearch.add(field, search.get(field));
+            }
+        }
+        projectedSearch.add("nodes", users);
+
+        JsonObject projectedData = new JsonObject();
+        projectedData.add("search", projectedSearch);
+        JsonObject projected = new JsonObject();
+        projected.add("data", projectedData);
+        return projected;
+    }
+
+    /**
+     * Replaces a user's repositories and contribution calendar by the calendar total, the
+     * latest active day, and star and repository counts per primary language
+     */
+    private JsonObject projectUser(JsonObject user) {
+        if (user.has(PROJECTION_FIELD) || !user.has("login")) {
+            return user;
+        }
+        JsonArray repositories = new JsonArray();
+        if (user.has("allRepos") && user.get("allRepos").isJsonObject()
+                && user.getAsJsonObject("allRepos").has("nodes")) {
+            repositories = user.getAsJsonObject("allRepos").getAsJsonArray("nodes");
+        }
+
+        JsonObject languages = new JsonObject();
+        int totalStars = 0;
+        int totalForks = 0;
+        for (JsonElement repo : repositories) {
+            JsonObject repoObj = repo.getAsJsonObject();
+            int stars = repoObj.get("stargazerCount").getAsInt();
+            totalStars += stars;
+            totalForks += repoObj.get("forkCount").getAsInt();
+            if (repoObj.has("primaryLanguage") && !repoObj.get("primaryLanguage").isJsonNull()) {
+                String languageName = repoObj.getAsJsonObject("primaryLanguage").get("name").getAsString();
+                JsonObject languageStats = languages.has(languageName) ? languages.getAsJsonObject(languageName)
+                        : new JsonObject();
+                languageStats.addProperty("repos", getIntOrDefault(languageStats, "repos") + 1);
+                languageStats.addProperty("stars", getIntOrDefault(languageStats, "stars") + stars);
+                languages.add(languageName, languageStats);
+            }
+        }
+
+        JsonObject projection = new JsonObject();
+        projection.addProperty("totalContributions", getContributionCount(user));
+        Instant latestCommit = getLatestCommitDate(user);
+        if (latestCommit != null) {
+            projection.addProperty("latestActiveDay", latestCommit.toString());
+        }
+        projection.addProperty("totalStars", totalStars);
+        projection.addProperty("totalForks", totalForks);
+        projection.add("languages", languages);
+
+        JsonObject projected = user.deepCopy();
+        projected.remove("allRepos");
+        projected.remove("contributionsCollection");
+        projected.add(PROJECTION_FIELD, projection);
+        return projected;
+    }
+
+    private static int getIntOrDefault(JsonObject obj, String field) {
+        return obj.has(field) && !obj.get(field).isJsonNull() ? obj.get(field).getAsInt() : 0;
+    }
+
     private void processUsers(JsonArray users, List<Contributor> contributors, City city, Language language) {
         for (JsonElement userElement : users) {
             if (!userElement.isJsonNull()) {
@@ -745,24 +916,47 @@ public class GithubService {
                 .build();
         }
 
-        // Process the data using shared logic
-        JsonObject reposObj = userData.getAsJsonObject("allRepos");
-        JsonArray repositories = new JsonArray();
-        if (reposObj != null && reposObj.has("nodes")) {
-            repositories = reposObj.getAsJsonArray("nodes");
-        }
-
-        log.info("Processing repositories for user: {}", getStringOrDefault(userData, "login", "unknown"));
-        log.info("Total repositories found: {}", repositories.size());
-
-        long languageRepos = language != null ? countLanguageRepositories(repositories, language) : 0;
+        long languageRepos;
+        int starsReceived;
+        int totalCommits;
+        int totalForks;
+        Instant latestCommit;
         int starsGiven = getStarsGiven(userData);
         int forksGiven = getForksGiven(userData);
-        int starsReceived = language != null ? calculateLanguageStarsReceived(repositories, language)
-                : calculateTotalStars(repositories);
-        int totalCommits = getContributionCount(userData);
-        int totalForks = calculateTotalForks(repositories);
-        Instant latestCommit = getLatestCommitDate(userData);
+
+        if (userData.has(PROJECTION_FIELD)) {
+            // Projected from a cached search page
+            JsonObject projection = userData.getAsJsonObject(PROJECTION_FIELD);
+            JsonObject languages = projection.getAsJsonObject("languages");
+            JsonObject languageStats = language != null && languages.has(language.getName())
+                    ? languages.getAsJsonObject(language.getName())
+                    : new JsonObject();
+            languageRepos = getIntOrDefault(languageStats, "repos");
+            starsReceived = language != null ? getIntOrDefault(languageStats, "stars")
+                    : getIntOrDefault(projection, "totalStars");
+            totalCommits = getIntOrDefault(projection, "totalContributions");
+            totalForks = getIntOrDefault(projection, "totalForks");
+            latestCommit = projection.has("latestActiveDay")
+                    ? Instant.parse(projection.get("latestActiveDay").getAsString())
+                    : null;
+        } else {
+            // Process the data using shared logic
+            JsonObject reposObj = userData.getAsJsonObject("allRepos");
+            JsonArray repositories = new JsonArray();
+            if (reposObj != null && reposObj.has("nodes")) {
+                repositories = reposObj.getAsJsonArray("nodes");
+            }
+
+            log.info("Processing repositories for user: {}", getStringOrDefault(userData, "login", "unknown"));
+            log.info("Total repositories found: {}", repositories.size());
+
+            languageRepos = language != null ? countLanguageRepositories(repositories, language) : 0;
+            starsReceived = language != null ? calculateLanguageStarsReceived(repositories, language)
+                    : calculateTotalStars(repositories);
+            totalCommits = getContributionCount(userData);
+            totalForks = calculateTotalForks(repositories);
+            latestCommit = getLatestCommitDate(userData);
+        }
 
         log.info("Repository Statistics Summary:");
         log.info("- Total {} Repositories: {}", language != null ? language.getName() : "All", languageRepos);
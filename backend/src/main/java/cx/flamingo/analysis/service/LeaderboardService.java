@@ -0,0 +1,100 @@
+package cx.flamingo.analysis.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+
+import cx.flamingo.analysis.cache.CacheServiceAbs;
+import cx.flamingo.analysis.cache.model.Leaderboard;
+import cx.flamingo.analysis.model.City;
+import cx.flamingo.analysis.model.Contributor;
+import cx.flamingo.analysis.model.Language;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LeaderboardService {
+
+    private static final Comparator<Contributor> BY_SCORE_DESC = Comparator
+            .comparingInt(Contributor::getScore)
+            .reversed();
+
+    private final CacheServiceAbs cacheService;
+
+    /**
+     * Answers a region, state, team or "all" query by merging the materialized per-city
+     * leaderboards, without any GitHub calls. Empty if any target city has no cached
+     * leaderboard deep enough for maxResults.
+     */
+    public Optional<List<Contributor>> getTopContributorsFromCache(List<City> cities, Language language,
+            int maxResults) {
+        if (cacheService.forceCacheUpdate()) {
+            return Optional.empty();
+        }
+
+        List<String> cityIds = cities.stream().map(City::getId).toList();
+        List<Optional<Leaderboard>> leaderboards = cacheService.getCachedCityLeaderboards(cityIds,
+                language.getId());
+
+        List<List<Contributor>> rankings = new ArrayList<>(leaderboards.size());
+        for (int i = 0; i < leaderboards.size(); i++) {
+            Optional<Leaderboard> leaderboard = leaderboards.get(i);
+            if (leaderboard.isEmpty() || !leaderboard.get().covers(maxResults)) {
+                log.debug("No usable leaderboard for city: {}, language: {}", cityIds.get(i), language.getId());
+                return Optional.empty();
+            }
+            rankings.add(leaderboard.get().getContributors());
+        }
+
+        log.debug("Merged {} {} city leaderboards from cache", rankings.size(), language.getName());
+        return Optional.of(mergeTopContributors(rankings, maxResults));
+    }
+
+    public static List<Contributor> sortByScore(List<Contributor> contributors) {
+        List<Contributor> sorted = new ArrayList<>(contributors);
+        sorted.sort(BY_SCORE_DESC);
+        return sorted;
+    }
+
+    /**
+     * K-way merge of rankings that are each sorted by score, highest first.
+     * A contributor found in several cities keeps its highest-scoring entry.
+     */
+    public static List<Contributor> mergeTopContributors(List<List<Contributor>> rankings, int maxResults) {
+        PriorityQueue<RankingCursor> heads = new PriorityQueue<>(Math.max(1, rankings.size()),
+                Comparator.comparing(RankingCursor::head, BY_SCORE_DESC));
+        for (List<Contributor> ranking : rankings) {
+            if (ranking != null && !ranking.isEmpty()) {
+                heads.add(new RankingCursor(ranking, 0));
+            }
+        }
+
+        List<Contributor> merged = new ArrayList<>(maxResults);
+        Set<String> seenLogins = new HashSet<>();
+        while (!heads.isEmpty() && merged.size() < maxResults) {
+            RankingCursor cursor = heads.poll();
+            Contributor contributor = cursor.head();
+            if (seenLogins.add(contributor.getLogin())) {
+                merged.add(contributor);
+            }
+            if (cursor.position() + 1 < cursor.ranking().size()) {
+                heads.add(new RankingCursor(cursor.ranking(), cursor.position() + 1));
+            }
+        }
+        return merged;
+    }
+
+    private record RankingCursor(List<Contributor> ranking, int position) {
+        Contributor head() {
+            return ranking.get(position);
+        }
+    }
+}
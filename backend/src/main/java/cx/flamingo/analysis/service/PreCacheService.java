@@ -9,7 +9,7 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import cx.flamingo.analysis.cache.CacheServiceAbs;
-import cx.flamingo.analysis.controller.ContributorController;
+import cx.flamingo.analysis.cache.CacheSnapshotService;
 import cx.flamingo.analysis.model.Language;
 import lombok.extern.slf4j.Slf4j;
 
@@ -18,7 +18,7 @@ import lombok.extern.slf4j.Slf4j;
 public class PreCacheService {
 
     @Autowired
-    ContributorController contributorController;
+    ContributorSearchService contributorSearchService;
 
     @Autowired
     LanguageService languageService;
@@ -26,25 +26,44 @@ public class PreCacheService {
     @Autowired
     CacheServiceAbs cacheService;
 
+    @Autowired
+    CacheSnapshotService cacheSnapshotService;
+
     // Always run the cache refresh cycle on startup
     @Scheduled(initialDelay = 1000l, fixedDelay = 1000l)
     void runFullCacheCycle() {
         Instant startTime = Instant.now();
         log.info("Starting cache refresh cycle for all languages...");
         List<Language> languages = languageService.getAllLanguages();
+        long generation = cacheService.beginGeneration();
 
         for (Language language : languages) {
             try {
                 log.info("Refreshing cache for language {}", language.getName());
                 // Force cache refresh for all cities
-                contributorController.getContributors(null, null, null, null, language.getId(), 15,
-                        GithubService.GithubApiPriority.Low);
+                contributorSearchService.findRanking(null, null, null, null, language.getId(), 15,
+                        GithubService.GithubApiPriority.Low, null, null);
             } catch (Exception e) {
                 log.error("Error fetching contributors for language {}: {}", language.getName(), e.getMessage());
             }
         }
 
-        cacheService.setCacheIsReady(true);
+        // Readers only switch over to a generation that has every language
+        List<String> languageIds = languages.stream().map(Language::getId).toList();
+        if (!cacheService.isGenerationComplete(generation, languageIds)) {
+            cacheService.abandonGeneration(generation);
+            log.warn("Cache generation {} is incomplete, keeping the current one", generation);
+            return;
+        }
+        cacheService.publishGeneration(generation);
+
+        if (cacheSnapshotService.isExportEnabled()) {
+            try {
+                cacheSnapshotService.exportSnapshot();
+            } catch (Exception e) {
+                log.error("Error exporting cache snapshot: {}", e.getMessage());
+            }
+        }
 
         Duration totalDuration = Duration.between(startTime, Instant.now());
         log.info("Cache refresh completed for {} languages in {} minutes and {} seconds",
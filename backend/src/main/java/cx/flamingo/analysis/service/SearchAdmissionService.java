@@ -0,0 +1,148 @@
+package cx.flamingo.analysis.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import cx.flamingo.analysis.exception.SearchRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Admission control for searches that fetch from GitHub. A search costs one unit per target
+ * city while it runs. It is admitted while the cost in flight stays within
+ * search.admission.max.cost, and its client's own cost within search.admission.client.max.cost,
+ * so that one client can't take the whole budget. A search is always admitted when nothing
+ * else is running, whatever it costs. Over budget, searches are rejected at once, not queued.
+ *
+ * Every search is charged, whatever priority its client asks for. The cache-updater, which has
+ * no interactive searches to protect, turns admission off with search.admission.enabled.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchAdmissionService {
+
+    private static final String ANONYMOUS_CLIENT = "anonymous";
+
+    /**
+     * Cost held by an admitted search, released when it completes
+     */
+    public interface Admission extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final Admission UNLIMITED = () -> {
+    };
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${search.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.admission.max.cost:400}")
+    private int maxCost;
+
+    @Value("${search.admission.client.max.cost:200}")
+    private int clientMaxCost;
+
+    @Value("${search.admission.retry.after.s:10}")
+    private long retryAfterSeconds;
+
+    private final Map<String, Integer> clientCosts = new ConcurrentHashMap<>();
+    private int costInFlight;
+
+    private Counter admitted;
+    private Counter rejectedOverBudget;
+    private Counter rejectedOverClientBudget;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("search.admission.cost.in.flight", this, admission -> admission.getCostInFlight())
+                .description("Cost of the searches fetching from GitHub, in target cities")
+                .register(meterRegistry);
+        Gauge.builder("search.admission.clients.in.flight", clientCosts, Map::size)
+                .description("Clients with a search fetching from GitHub")
+                .register(meterRegistry);
+        admitted = Counter.builder("search.admission.admitted")
+                .description("Searches admitted to fetch from GitHub")
+                .register(meterRegistry);
+        rejectedOverBudget = rejectedCounter("budget");
+        rejectedOverClientBudget = rejectedCounter("client");
+    }
+
+    /**
+     * Count a rejected search answered from what the cache had, e.g. a shallower ranking
+     */
+    public void recordFallback(String source) {
+        Counter.builder("search.admission.fallback")
+                .description("Rejected searches answered from the cache")
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Counter rejectedCounter(String reason) {
+        return Counter.builder("search.admission.rejected")
+                .description("Searches rejected by admission control")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Admit a search costing the given number of cities, or throw SearchRejectedException
+     */
+    public Admission admit(String clientId, int cost) {
+        if (!enabled) {
+            return UNLIMITED;
+        }
+        String client = clientId != null ? clientId : ANONYMOUS_CLIENT;
+        synchronized (this) {
+            int clientCost = clientCosts.getOrDefault(client, 0);
+            if (clientCost > 0 && clientCost + cost > clientMaxCost) {
+                rejectedOverClientBudget.increment();
+                log.warn("Rejected search of {} cities from {}, it already has {} in flight", cost, client,
+                        clientCost);
+                throw new SearchRejectedException("Too many searches from this client, retry later",
+                        retryAfterSeconds);
+            }
+            if (costInFlight > 0 && costInFlight + cost > maxCost) {
+                rejectedOverBudget.increment();
+                log.warn("Rejected search of {} cities from {}, {} in flight", cost, client, costInFlight);
+                throw new SearchRejectedException("Too many searches in progress, retry later", retryAfterSeconds);
+            }
+            costInFlight += cost;
+            clientCosts.put(client, clientCost + cost);
+        }
+        admitted.increment();
+        return () -> release(client, cost);
+    }
+
+    private synchronized void release(String client, int cost) {
+        costInFlight -= cost;
+        clientCosts.computeIfPresent(client, (key, clientCost) -> clientCost > cost ? clientCost - cost : null);
+    }
+
+    private synchronized int getCostInFlight() {
+        return costInFlight;
+    }
+
+    /**
+     * The client as seen by our ingress: the last X-Forwarded-For hop, which the ingress added
+     * itself, or the peer address without a proxy. Earlier hops are set by the client.
+     */
+    public static String clientId(String forwardedFor, String remoteAddress) {
+        if (forwardedFor != null && !forwardedFor.isBlank()) {
+            String[] hops = forwardedFor.split(",");
+            return hops[hops.length - 1].trim();
+        }
+        return remoteAddress;
+    }
+}
@@ -0,0 +1,76 @@
+package cx.flamingo.analysis.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import cx.flamingo.analysis.cache.impl.MemoryCacheService;
+import cx.flamingo.analysis.cache.model.Leaderboard;
+import cx.flamingo.analysis.config.RedisConfig;
+import cx.flamingo.analysis.model.Contributor;
+
+class CacheGenerationTest {
+
+    private static final String LANGUAGE_ID = "java";
+
+    // Typed as the base class, whose protected path helpers this package can reach
+    private CacheServiceAbs cacheService;
+
+    @BeforeEach
+    void setUp() {
+        cacheService = new MemoryCacheService(new RedisConfig().gson());
+        ReflectionTestUtils.setField(cacheService, "maxBytes", 16L * 1024 * 1024);
+        ReflectionTestUtils.setField(cacheService, "httpRefreshIntervalMs", 3600000L);
+        ReflectionTestUtils.setField(cacheService, "generationRetain", 1);
+        ReflectionTestUtils.invokeMethod(cacheService, "init");
+    }
+
+    @Test
+    void concurrentWritersGetTheirOwnGeneration() {
+        long first = cacheService.beginGeneration();
+        putRanking(first, List.of(contributor("octocat")));
+
+        long second = cacheService.beginGeneration();
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(cacheService.isGenerationComplete(first, List.of(LANGUAGE_ID))).isTrue();
+    }
+
+    @Test
+    void failedCycleIsNotPublished() {
+        long good = cacheService.beginGeneration();
+        putRanking(good, List.of(contributor("octocat")));
+        assertThat(cacheService.isGenerationComplete(good, List.of(LANGUAGE_ID))).isTrue();
+        cacheService.publishGeneration(good);
+
+        // Every GitHub call failed, the cycle still wrote its ranking, empty
+        long failed = cacheService.beginGeneration();
+        putRanking(failed, List.of());
+
+        assertThat(cacheService.isGenerationComplete(failed, List.of(LANGUAGE_ID))).isFalse();
+        cacheService.abandonGeneration(failed);
+        assertThat(cacheService.getReadGeneration()).isEqualTo(good);
+    }
+
+    @Test
+    void emptyRankingIsPublishedWhenThereWasNothingBetter() {
+        long generation = cacheService.beginGeneration();
+        putRanking(generation, List.of());
+
+        assertThat(cacheService.isGenerationComplete(generation, List.of(LANGUAGE_ID))).isTrue();
+    }
+
+    private void putRanking(long generation, List<Contributor> contributors) {
+        cacheService.put(cacheService.generationPath(cacheService.getHttpCachePath(), generation),
+                cacheService.generateCacheKey(null, null, null, null, LANGUAGE_ID),
+                Leaderboard.builder().contributors(contributors).depth(15).build());
+    }
+
+    private static Contributor contributor(String login) {
+        return Contributor.builder().login(login).build();
+    }
+}
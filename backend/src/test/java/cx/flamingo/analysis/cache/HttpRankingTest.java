@@ -0,0 +1,67 @@
+package cx.flamingo.analysis.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import cx.flamingo.analysis.cache.impl.MemoryCacheService;
+import cx.flamingo.analysis.cache.model.Leaderboard;
+import cx.flamingo.analysis.config.CacheConfig;
+import cx.flamingo.analysis.config.RedisConfig;
+import cx.flamingo.analysis.model.Contributor;
+import cx.flamingo.analysis.model.Deadline;
+
+class HttpRankingTest {
+
+    private static final String LANGUAGE_ID = "java";
+    private static final int STORED_DEPTH = 50;
+
+    private CacheServiceAbs cacheService;
+
+    @BeforeEach
+    void setUp() {
+        cacheService = new MemoryCacheService(new RedisConfig().gson());
+        ReflectionTestUtils.setField(cacheService, "maxBytes", 16L * 1024 * 1024);
+        ReflectionTestUtils.setField(cacheService, "httpRefreshIntervalMs", 3600000L);
+        ReflectionTestUtils.setField(cacheService, "leaderboardMaxDepth", STORED_DEPTH);
+        ReflectionTestUtils.invokeMethod(cacheService, "init");
+        cacheService.setCacheMode(CacheConfig.CacheMode.READ_WRITE);
+    }
+
+    @Test
+    void pagePastTheStoredDepthComputesTheRankingDeeper() {
+        List<Integer> fetchedDepths = new ArrayList<>();
+        Optional<Leaderboard> stored = cacheService.getHttpRanking(null, null, null, null, LANGUAGE_ID, 15,
+                depth -> {
+                    fetchedDepths.add(depth);
+                    return contributors(depth);
+                }, Deadline.NONE);
+        assertThat(stored).get().extracting(Leaderboard::getDepth).isEqualTo(STORED_DEPTH);
+
+        // offset 50, limit 15
+        Optional<Leaderboard> deeper = cacheService.getHttpRanking(null, null, null, null, LANGUAGE_ID, 65,
+                depth -> {
+                    fetchedDepths.add(depth);
+                    return contributors(depth);
+                }, Deadline.NONE);
+
+        assertThat(fetchedDepths).containsExactly(STORED_DEPTH, 65);
+        assertThat(deeper).get().satisfies(ranking -> {
+            assertThat(ranking.getDepth()).isEqualTo(65);
+            assertThat(ranking.page(50, 15)).hasSize(15);
+        });
+    }
+
+    private static List<Contributor> contributors(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> Contributor.builder().login("contributor-" + i).score(count - i).build())
+                .toList();
+    }
+}
@@ -0,0 +1,127 @@
+package cx.flamingo.analysis.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cx.flamingo.analysis.cache.CacheReadinessTracker;
+import cx.flamingo.analysis.cache.CacheServiceAbs;
+import cx.flamingo.analysis.cache.model.Expiration;
+import cx.flamingo.analysis.cache.model.Leaderboard;
+import cx.flamingo.analysis.model.ApiResponse;
+import cx.flamingo.analysis.model.Contributor;
+import cx.flamingo.analysis.model.Deadline;
+import cx.flamingo.analysis.model.PageInfo;
+import cx.flamingo.analysis.service.ContributorExportService;
+import cx.flamingo.analysis.service.ContributorSearchService;
+import cx.flamingo.analysis.service.GithubService;
+
+class ContributorControllerTest {
+
+    private static final String LANGUAGE_ID = "java";
+    // Not one of http.body.cache.max.results, so there is no pre-rendered body to serve
+    private static final int UNCACHED_MAX_RESULTS = 20;
+
+    private ContributorSearchService contributorSearchService;
+    private CacheServiceAbs cacheService;
+    private ContributorController controller;
+
+    @BeforeEach
+    void setUp() {
+        contributorSearchService = mock(ContributorSearchService.class);
+        cacheService = mock(CacheServiceAbs.class);
+        CacheReadinessTracker cacheReadinessTracker = mock(CacheReadinessTracker.class);
+        when(cacheReadinessTracker.isReady()).thenReturn(true);
+        when(contributorSearchService.deadline(any())).thenReturn(Deadline.NONE);
+        when(cacheService.getReadGeneration()).thenReturn(1L);
+        when(cacheService.getHttpResponseBody(any(), any(), any(), any(), any(), anyInt()))
+                .thenReturn(Optional.empty());
+        when(cacheService.getHttpResponseExpiration(any(), any(), any(), any(), any()))
+                .thenReturn(Optional.of(Expiration.builder().timestamp(System.currentTimeMillis()).build()));
+
+        controller = new ContributorController(contributorSearchService, mock(ContributorExportService.class),
+                cacheService, cacheReadinessTracker, new ObjectMapper(), mock(ThreadPoolTaskExecutor.class));
+        ReflectionTestUtils.setField(controller, "httpRefreshIntervalMs", 3600000L);
+    }
+
+    @Test
+    void gzipClientRevalidatesUncachedMaxResults() {
+        List<Contributor> contributors = List.of(Contributor.builder().login("octocat").build());
+        when(contributorSearchService.search(isNull(), isNull(), isNull(), isNull(), eq(LANGUAGE_ID),
+                eq(UNCACHED_MAX_RESULTS), any(), any(), isNull(), any()))
+                .thenReturn(Optional.of(new ContributorSearchService.SearchResult(
+                        Leaderboard.builder().contributors(contributors).depth(50).build(), null)));
+
+        ResponseEntity<?> first = search(null);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String etag = first.getHeaders().getETag();
+        assertThat(etag).isNotNull();
+
+        ResponseEntity<?> second = search(etag);
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(second.getHeaders().getETag()).isEqualTo(etag);
+    }
+
+    @Test
+    void pagesPastTheStoredDepth() {
+        // The stored ranking is leaderboard.max.depth deep and full, there may be more past it
+        stubRanking(50, 50, 50);
+        PageInfo lastStored = page(35, 15);
+        assertThat(lastStored.getTotal()).isNull();
+        assertThat(lastStored.getNextOffset()).isEqualTo(50);
+
+        // The next page computes the ranking deeper, where it runs out
+        stubRanking(65, 60, 65);
+        ApiResponse<?> deeper = (ApiResponse<?>) search(50, 15).getBody();
+        assertThat((List<?>) deeper.getData()).hasSize(10);
+        assertThat(deeper.getPage().getTotal()).isEqualTo(60);
+        assertThat(deeper.getPage().getNextOffset()).isNull();
+        verify(contributorSearchService).search(isNull(), isNull(), isNull(), isNull(), eq(LANGUAGE_ID), eq(65),
+                any(), any(), isNull(), any());
+    }
+
+    private void stubRanking(int maxResults, int size, int depth) {
+        List<Contributor> contributors = IntStream.range(0, size)
+                .mapToObj(i -> Contributor.builder().login("contributor-" + i).score(size - i).build())
+                .toList();
+        when(contributorSearchService.search(isNull(), isNull(), isNull(), isNull(), eq(LANGUAGE_ID),
+                eq(maxResults), any(), any(), isNull(), any()))
+                .thenReturn(Optional.of(new ContributorSearchService.SearchResult(
+                        Leaderboard.builder().contributors(contributors).depth(depth).build(), null)));
+    }
+
+    private PageInfo page(int offset, int limit) {
+        return ((ApiResponse<?>) search(offset, limit).getBody()).getPage();
+    }
+
+    private ResponseEntity<?> search(int offset, int limit) {
+        return controller.searchContributors(null, null, null, null, LANGUAGE_ID, 15, offset, limit,
+                GithubService.GithubApiPriority.High, null, null, null, null, null, new MockHttpServletRequest());
+    }
+
+    private ResponseEntity<?> search(String ifNoneMatch) {
+        return controller.searchContributors(null, null, null, null, LANGUAGE_ID, UNCACHED_MAX_RESULTS, null,
+                null, GithubService.GithubApiPriority.High, null, null, null, "gzip, deflate, br", ifNoneMatch,
+                new MockHttpServletRequest());
+    }
+}